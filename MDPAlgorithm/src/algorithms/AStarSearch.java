@@ -0,0 +1,458 @@
+package algorithms;
+
+import map.MapReader;
+import robot.RobotConstants;
+import robot.RobotConstants.DIRECTION;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// @formatter:off
+/**
+ * Primitive-array A* search core used by FastestPathAlgo.
+ *
+ * Every cell is identified by its index (row * cols + col). The search state is held in preallocated arrays:
+ *
+ * gCosts  = int real cost from START to each state i.e. g(n)
+ * parents = index of the parent of each state, -1 for the starting state
+ * closed  = bitset of expanded states
+ * touched = states whose entries were written by the last search, so that only those need to be reset
+ *
+ * By default a state is a cell and the turn cost of a move is charged from the direction in which the parent cell
+ * was entered. In heading-aware mode a state is a (row, col, DIRECTION) triple with index cell * 4 + direction, and
+ * turning on the spot and moving forward are separate transitions. Turn costs are then exact and the returned path
+ * has the minimum total cost of moves and turns.
+ *
+ * searchNearest() runs Dijkstra over (row, col, DIRECTION) states towards a set of target cells and stops at the
+ * first target that is settled, i.e. the reachable target with the lowest cost.
+ *
+ * searchViaWaypoint() plans a route that passes a waypoint on its way to the goal in one search. Its states are
+ * (leg, row, col, DIRECTION) with index leg * layerSize + cell * 4 + direction, where leg 0 is before and leg 1 after
+ * the waypoint, so the heading at the waypoint is chosen to minimise the cost of the whole route.
+ *
+ * The arrays hold the states of one leg until the first call to searchViaWaypoint() extends them to both legs. After
+ * that, a search does not allocate and resets the arrays in O(touched states).
+ */
+// @formatter:on
+
+class AStarSearch {
+    static final int NO_PARENT = -1;
+
+    private static final int NORTH = DIRECTION.NORTH.ordinal();
+    private static final int EAST = DIRECTION.EAST.ordinal();
+    private static final int SOUTH = DIRECTION.SOUTH.ordinal();
+    private static final int WEST = DIRECTION.WEST.ordinal();
+    private static final int[] ROW_INC = {1, 0, -1, 0};     // row increment of a forward move, by DIRECTION
+    private static final int[] COL_INC = {0, 1, 0, -1};     // col increment of a forward move, by DIRECTION
+
+    private final int rows;
+    private final int cols;
+    private final int layerSize;        // no. of (row, col, DIRECTION) states in one leg
+    private int[] gCosts;
+    private int[] parents;
+    private long[] closed;
+    private int[] touched;
+    private int touchedCount;
+    private IndexedMinHeap open;
+    private boolean headingAware;
+    private boolean headingStates;      // true if the states of the last search are (row, col, DIRECTION) states
+    private int[] costToGoal;           // exact cost from each state to the goal if known, used as h(n)
+    private int waypoint = NO_PARENT;   // waypoint cell of the current search, or NO_PARENT
+    private int waypointCostH;          // lower bound on the cost from the waypoint to the goal
+    private int goalState;
+    private int loopCount;
+
+    AStarSearch(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.layerSize = rows * cols * 4;
+        allocate(layerSize);
+    }
+
+    /**
+     * Allocates the arrays for numStates states, all in their initial state.
+     */
+    private void allocate(int numStates) {
+        this.gCosts = new int[numStates];
+        this.parents = new int[numStates];
+        this.closed = new long[(numStates + 63) >>> 6];
+        this.touched = new int[numStates];
+        this.open = new IndexedMinHeap(numStates);
+
+        Arrays.fill(gCosts, RobotConstants.INFINITE_COST);
+        Arrays.fill(parents, NO_PARENT);
+    }
+
+    /**
+     * Switches between cell states and (row, col, DIRECTION) states for the following searches.
+     */
+    void setHeadingAware(boolean headingAware) {
+        this.headingAware = headingAware;
+    }
+
+    boolean isHeadingAware() {
+        return headingAware;
+    }
+
+    /**
+     * Runs A* from [startRow, startCol] facing startDir to [goalRow, goalCol]. Returns true if the goal was reached.
+     */
+    boolean search(MapReader map, int startRow, int startCol, DIRECTION startDir, int goalRow, int goalCol) {
+        return search(map, startRow, startCol, startDir, goalRow, goalCol, null);
+    }
+
+    /**
+     * Runs A* as search() does. In heading-aware mode, a non-null goalField holds the exact cost from every state to
+     * the goal (see DistanceFieldCache) and is used as a perfect h(n), so that only states on a fastest path are
+     * expanded.
+     */
+    boolean search(MapReader map, int startRow, int startCol, DIRECTION startDir, int goalRow, int goalCol, int[] goalField) {
+        reset();
+
+        headingStates = headingAware;
+        if (headingAware) {
+            costToGoal = goalField;
+            try {
+                return searchWithHeading(map, startRow, startCol, startDir, goalRow * cols + goalCol, null);
+            } finally {
+                costToGoal = null;
+            }
+        }
+
+        int start = startRow * cols + startCol;
+        int goal = goalRow * cols + goalCol;
+        touch(start);
+        gCosts[start] = 0;
+        open.insert(start, costH(start, goal));
+
+        while (!open.isEmpty()) {
+            loopCount++;
+            int current = open.poll();
+            closed[current >>> 6] |= 1L << current;
+
+            if (current == goal) {
+                goalState = current;
+                return true;
+            }
+
+            int row = current / cols;
+            int col = current % cols;
+
+            // Direction the robot faces at current after arriving from its parent.
+            int curDir = parents[current] == NO_PARENT ? startDir.ordinal() : getTargetDir(parents[current], current);
+
+            // Neighbors of current cell in the order [Top, Bottom, Left, Right].
+            relax(map, current, curDir, row + 1, col, goal);
+            relax(map, current, curDir, row - 1, col, goal);
+            relax(map, current, curDir, row, col - 1, goal);
+            relax(map, current, curDir, row, col + 1, goal);
+        }
+
+        return false;
+    }
+
+    /**
+     * Runs Dijkstra from [startRow, startCol] facing startDir until the cheapest reachable cell in targets is found.
+     * Returns true if a target was reached; its state is then given by getGoalState().
+     */
+    boolean searchNearest(MapReader map, int startRow, int startCol, DIRECTION startDir, BitSet targets) {
+        reset();
+
+        headingStates = true;
+        return searchWithHeading(map, startRow, startCol, startDir, NO_PARENT, targets);
+    }
+
+    /**
+     * Runs A* from [startRow, startCol] facing startDir to [goalRow, goalCol] over (leg, row, col, DIRECTION) states,
+     * passing [waypointRow, waypointCol] on the way. A non-null goalField is used as in search(). Returns true if the
+     * goal was reached after the waypoint.
+     */
+    boolean searchViaWaypoint(MapReader map, int startRow, int startCol, DIRECTION startDir, int waypointRow, int waypointCol, int goalRow, int goalCol, int[] goalField) {
+        reset();
+        if (gCosts.length < 2 * layerSize) allocate(2 * layerSize);     // first search with a second leg
+
+        headingStates = true;
+        costToGoal = goalField;
+        waypoint = waypointRow * cols + waypointCol;
+        waypointCostH = Integer.MAX_VALUE;
+        for (int dir = 0; dir < 4; dir++) {
+            int state = waypoint * 4 + dir;
+            waypointCostH = Math.min(waypointCostH, goalField != null ? goalField[state] : headingCostH(state, goalRow * cols + goalCol, cols));
+        }
+        if (waypointCostH == Integer.MAX_VALUE) {
+            // The goal cannot be reached from the waypoint.
+            costToGoal = null;
+            waypoint = NO_PARENT;
+            return false;
+        }
+
+        try {
+            return searchWithHeading(map, startRow, startCol, startDir, goalRow * cols + goalCol, null);
+        } finally {
+            costToGoal = null;
+            waypoint = NO_PARENT;
+        }
+    }
+
+    /**
+     * Runs A* over (row, col, DIRECTION) states. Any state at the goal cell is a goal state. If targets is not null,
+     * any state at a cell in targets is a goal state and no heuristic is used.
+     */
+    private boolean searchWithHeading(MapReader map, int startRow, int startCol, DIRECTION startDir, int goal, BitSet targets) {
+        int start = (startRow * cols + startCol) * 4 + startDir.ordinal();
+        touch(start);
+        gCosts[start] = 0;
+        open.insert(start, headingCostH(start, goal));
+
+        while (!open.isEmpty()) {
+            loopCount++;
+            int current = open.poll();
+            closed[current >>> 6] |= 1L << current;
+
+            int leg = current >= layerSize ? layerSize : 0;
+            int cell = (current - leg) >> 2;
+            int dir = current & 3;
+            if (waypoint != NO_PARENT && leg == 0) {
+                // Before the waypoint, reaching it only switches to the second leg without moving.
+                if (cell == waypoint) {
+                    relaxState(current, current + layerSize, 0, goal);
+                    continue;
+                }
+            } else if (targets == null ? cell == goal : targets.get(cell)) {
+                goalState = current;
+                return true;
+            }
+
+            // Move forward one cell, turn right or turn left on the spot.
+            int row = cell / cols + ROW_INC[dir];
+            int col = cell % cols + COL_INC[dir];
+            if (map.checkValidCoordinates(row, col) && map.isFreeCell(row, col)) {
+                relaxState(current, leg + (row * cols + col) * 4 + dir, RobotConstants.MOVE_COST, goal);
+            }
+            relaxState(current, leg + cell * 4 + ((dir + 1) & 3), RobotConstants.TURN_COST, goal);
+            relaxState(current, leg + cell * 4 + ((dir + 3) & 3), RobotConstants.TURN_COST, goal);
+        }
+
+        return false;
+    }
+
+    /**
+     * Updates the g(n) value of state next, reached from current with the given transition cost.
+     */
+    private void relaxState(int current, int next, int cost, int goal) {
+        if (isClosed(next)) return;
+
+        // A goal field holds Integer.MAX_VALUE at states from which the goal cannot be reached.
+        int h = headingCostH(next, goal);
+        if (h == Integer.MAX_VALUE) return;
+
+        int newGScore = gCosts[current] + cost;
+        if (!open.contains(next)) {
+            touch(next);
+            parents[next] = current;
+            gCosts[next] = newGScore;
+            open.insert(next, newGScore + h);
+        } else if (newGScore < gCosts[next]) {
+            parents[next] = current;
+            gCosts[next] = newGScore;
+            open.decreaseKey(next, newGScore + h);
+        }
+    }
+
+    /**
+     * Returns an admissible h(n) from a (row, col, DIRECTION) state to goal cell b. It is the exact cost if a goal
+     * field was given, otherwise the moves and the fewest turns needed to face every direction in which b still lies.
+     * Returns 0 if there is no single goal cell.
+     */
+    private int headingCostH(int state, int b) {
+        if (b == NO_PARENT) return 0;
+        if (waypoint != NO_PARENT) {
+            if (state < layerSize) return headingCostH(state, waypoint, cols) + waypointCostH;
+            state -= layerSize;
+        }
+        if (costToGoal != null) return costToGoal[state];
+
+        return headingCostH(state, b, cols);
+    }
+
+    /**
+     * Returns the heading-aware h(n) from a (row, col, DIRECTION) state to goal cell b on a grid with cols columns.
+     */
+    static int headingCostH(int state, int b, int cols) {
+        if (b == NO_PARENT) return 0;
+
+        int a = state >> 2;
+        int movementCost = (Math.abs(b / cols - a / cols) + Math.abs(b % cols - a % cols)) * RobotConstants.MOVE_COST;
+        return movementCost + getMinNumOfTurn(state, b, cols) * RobotConstants.TURN_COST;
+    }
+
+    /**
+     * Returns the fewest 90 degree turns needed from a (row, col, DIRECTION) state to face every direction in which
+     * goal cell b still lies.
+     */
+    static int getMinNumOfTurn(int state, int b, int cols) {
+        int a = state >> 2;
+        int dir = state & 3;
+        int rowDiff = b / cols - a / cols;
+        int colDiff = b % cols - a % cols;
+
+        int vertical = rowDiff > 0 ? NORTH : (rowDiff < 0 ? SOUTH : -1);
+        int horizontal = colDiff > 0 ? EAST : (colDiff < 0 ? WEST : -1);
+
+        int numOfTurn;
+        if (vertical == -1 && horizontal == -1) {
+            numOfTurn = 0;
+        } else if (vertical == -1 || horizontal == -1) {
+            int target = vertical == -1 ? horizontal : vertical;
+            numOfTurn = dir == target ? 0 : (dir == ((target + 2) & 3) ? 2 : 1);
+        } else {
+            numOfTurn = (dir == vertical || dir == horizontal) ? 1 : 2;
+        }
+        return numOfTurn;
+    }
+
+    /**
+     * Updates the g(n) value of the neighbor at [row, col] of current if it can be visited.
+     */
+    private void relax(MapReader map, int current, int curDir, int row, int col, int goal) {
+        if (!map.checkValidCoordinates(row, col) || !map.isFreeCell(row, col)) return;
+
+        int neighbor = row * cols + col;
+        if (isClosed(neighbor)) return;
+
+        int newGScore = gCosts[current] + costG(current, neighbor, curDir);
+        if (!open.contains(neighbor)) {
+            touch(neighbor);
+            parents[neighbor] = current;
+            gCosts[neighbor] = newGScore;
+            open.insert(neighbor, newGScore + costH(neighbor, goal));
+        } else if (newGScore < gCosts[neighbor]) {
+            parents[neighbor] = current;
+            gCosts[neighbor] = newGScore;
+            open.decreaseKey(neighbor, newGScore + costH(neighbor, goal));
+        }
+    }
+
+    /**
+     * Returns the heuristic cost i.e. h(n) from cell a to cell b.
+     */
+    private int costH(int a, int b) {
+        // Heuristic: The no. of moves will be equal to the difference in the row and column values.
+        int movementCost = (Math.abs(a % cols - b % cols) + Math.abs(a / cols - b / cols)) * RobotConstants.MOVE_COST;
+
+        if (movementCost == 0) return 0;
+
+        // Heuristic: If a is not at b, one turn will be needed.
+        return movementCost + RobotConstants.TURN_COST;
+    }
+
+    /**
+     * Returns the ordinal of the DIRECTION the robot faces when moving from cell a to neighboring cell b.
+     */
+    private int getTargetDir(int a, int b) {
+        int colDiff = b % cols - a % cols;
+        if (colDiff < 0) return WEST;
+        if (colDiff > 0) return EAST;
+        return (b / cols < a / cols) ? SOUTH : NORTH;
+    }
+
+    /**
+     * Returns the actual cost of moving from cell a facing aDir to neighboring cell b.
+     */
+    private int costG(int a, int b, int aDir) {
+        int numOfTurn = Math.abs(aDir - getTargetDir(a, b));
+        if (numOfTurn > 2) {
+            numOfTurn = numOfTurn % 2;
+        }
+        return RobotConstants.MOVE_COST + numOfTurn * RobotConstants.TURN_COST;
+    }
+
+    private boolean isClosed(int index) {
+        return (closed[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Records a state that is about to be written for the first time in this search.
+     */
+    private void touch(int state) {
+        if (gCosts[state] == RobotConstants.INFINITE_COST) {
+            touched[touchedCount++] = state;
+        }
+    }
+
+    /**
+     * Restores the entries of all touched states to their initial values.
+     */
+    private void reset() {
+        for (int i = 0; i < touchedCount; i++) {
+            int state = touched[i];
+            gCosts[state] = RobotConstants.INFINITE_COST;
+            parents[state] = NO_PARENT;
+            closed[state >>> 6] = 0L;
+        }
+        touchedCount = 0;
+        open.clear();
+        goalState = NO_PARENT;
+        loopCount = 0;
+    }
+
+    /**
+     * Returns the state at which the last successful search reached the goal.
+     */
+    int getGoalState() {
+        return goalState;
+    }
+
+    /**
+     * Returns g(n) of the goal state of the last successful search.
+     */
+    int getGoalCost() {
+        return gCosts[goalState];
+    }
+
+    /**
+     * Returns the parent state of a state in the last search, or NO_PARENT.
+     */
+    int getParent(int state) {
+        return parents[state];
+    }
+
+    /**
+     * Returns the cell index of a state.
+     */
+    int getCell(int state) {
+        return headingStates ? (state % layerSize) >> 2 : state;
+    }
+
+    /**
+     * Returns g(n) of [row, col] in the last search, or INFINITE_COST if it was not reached. In heading-aware mode,
+     * the lowest g(n) over the four directions and both legs is returned.
+     */
+    int getGCost(int row, int col) {
+        int cell = row * cols + col;
+        if (!headingStates) return gCosts[cell];
+
+        int result = RobotConstants.INFINITE_COST;
+        for (int state = cell * 4; state < gCosts.length; state += layerSize) {
+            for (int dir = 0; dir < 4; dir++) {
+                result = Math.min(result, gCosts[state + dir]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of cells expanded in the last search.
+     */
+    int getLoopCount() {
+        return loopCount;
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    int getCols() {
+        return cols;
+    }
+}
@@ -0,0 +1,298 @@
+package algorithms;
+
+import map.MapReader;
+import robot.RobotConstants;
+import robot.RobotConstants.DIRECTION;
+
+import java.util.Arrays;
+
+// @formatter:off
+/**
+ * Anytime fastest path planner with a deadline (ARA*, Likhachev et al.).
+ *
+ * The search runs over (row, col, DIRECTION) states with the same costs and heuristic h(n) as the heading-aware
+ * AStarSearch, but orders states by an inflated key:
+ *
+ * f(n) = g(n) + epsilon * h(n)
+ *
+ * The first pass uses the largest epsilon and finds a path quickly, whose cost is at most epsilon times the optimum.
+ * Each following pass lowers epsilon by a fixed step and re-expands only the states whose g(n) improved since they
+ * were expanded (the INCONS list), reusing everything else. After every completed pass the plan and its bound are
+ * updated, and planning stops when the bound reaches 1 (the plan is optimal) or the deadline has passed.
+ *
+ * The first pass always runs to completion, so a plan is returned whenever the goal can be reached; later passes are
+ * abandoned at the deadline, keeping the plan of the last completed pass. The deadline is checked every
+ * CLOCK_CHECK_INTERVAL expansions.
+ *
+ * epsilon is held in hundredths, so keys are integers: key = g(n) * 100 + epsilon * h(n).
+ */
+// @formatter:on
+
+public class AnytimePlanner {
+    private static final int[] ROW_INC = {1, 0, -1, 0};     // row increment of a forward move, by DIRECTION
+    private static final int[] COL_INC = {0, 1, 0, -1};     // col increment of a forward move, by DIRECTION
+    private static final int EPSILON_SCALE = 100;           // epsilon of 1.0
+    private static final int CLOCK_CHECK_INTERVAL = 256;    // no. of expansions between deadline checks
+
+    private final MapReader map;
+    private final int cols;
+    private final int[] gCosts;
+    private final int[] parents;
+    private final long[] closed;
+    private final long[] inconsistent;  // bitset of the states in incons
+    private final int[] incons;         // closed states whose g(n) improved in the current pass
+    private int inconsCount;
+    private final int[] touched;
+    private int touchedCount;
+    private final int[] buffer;         // states of open while they are re-keyed
+    private final IndexedMinHeap open;
+    private int initialEpsilon = 3 * EPSILON_SCALE;
+    private int epsilonStep = EPSILON_SCALE / 2;
+    private int epsilon;
+    private int goal;
+    private int goalState;              // state at the goal cell with the lowest g(n), or NO_PARENT
+    private int planCost;               // cost of the path of the last plan
+    private int expanded;
+    private int passes;
+    private double bound;
+
+    public AnytimePlanner(MapReader map) {
+        int numStates = map.getCellCount() * 4;
+        this.map = map;
+        this.cols = map.getCols();
+        this.gCosts = new int[numStates];
+        this.parents = new int[numStates];
+        this.closed = new long[(numStates + 63) >>> 6];
+        this.inconsistent = new long[(numStates + 63) >>> 6];
+        this.incons = new int[numStates];
+        this.touched = new int[numStates];
+        this.buffer = new int[numStates];
+        this.open = new IndexedMinHeap(numStates);
+
+        Arrays.fill(gCosts, Integer.MAX_VALUE);
+        Arrays.fill(parents, AStarSearch.NO_PARENT);
+    }
+
+    /**
+     * Sets the epsilon of the first pass and the amount by which it is lowered after each pass. Both are multiples of
+     * the optimal cost, e.g. 3.0 and 0.5 (the defaults) give passes with epsilon 3.0, 2.5, ..., 1.0.
+     */
+    public void setEpsilon(double initialEpsilon, double epsilonStep) {
+        if (initialEpsilon < 1 || epsilonStep <= 0) throw new IllegalArgumentException("Invalid epsilon: " + initialEpsilon + ", step " + epsilonStep);
+
+        this.initialEpsilon = (int) Math.round(initialEpsilon * EPSILON_SCALE);
+        this.epsilonStep = Math.max(1, (int) Math.round(epsilonStep * EPSILON_SCALE));
+    }
+
+    /**
+     * Returns the best path from [startRow, startCol] facing startDir to [goalRow, goalCol] found by the deadline, a
+     * time in ms as given by System.currentTimeMillis(), or null if the goal cannot be reached. The cost of the plan is
+     * at most getBound() times the cost of the fastest path.
+     */
+    public PathPlan plan(int startRow, int startCol, DIRECTION startDir, int goalRow, int goalCol, long deadline) {
+        reset();
+
+        goal = goalRow * cols + goalCol;
+        int start = (startRow * cols + startCol) * 4 + startDir.ordinal();
+        touch(start);
+        gCosts[start] = 0;
+        if (goalRow * cols + goalCol == start >> 2) goalState = start;
+
+        epsilon = initialEpsilon;
+        open.insert(start, getKey(start));
+
+        PathPlan plan = null;
+        while (improvePath(passes == 0 ? Long.MAX_VALUE : deadline)) {
+            passes++;
+            if (goalState == AStarSearch.NO_PARENT) break;
+
+            plan = buildPlan(startRow, startCol, startDir, goalRow, goalCol);
+            bound = getSuboptimalityBound();
+            if (bound <= 1 || epsilon == EPSILON_SCALE || System.currentTimeMillis() >= deadline) break;
+
+            // Lower epsilon, move the inconsistent states back to open and re-key open for the next pass.
+            epsilon = Math.max(EPSILON_SCALE, epsilon - epsilonStep);
+            for (int i = 0; i < inconsCount; i++) {
+                int state = incons[i];
+                inconsistent[state >>> 6] &= ~(1L << state);
+                open.insert(state, 0);
+            }
+            inconsCount = 0;
+            int size = open.size();
+            for (int i = 0; i < size; i++) {
+                buffer[i] = open.get(i);
+            }
+            for (int i = 0; i < size; i++) {
+                open.update(buffer[i], getKey(buffer[i]));
+            }
+            for (int i = 0; i < touchedCount; i++) {
+                closed[touched[i] >>> 6] = 0L;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Expands states in order of their inflated key until no state in open can lead to a cheaper goal state. Returns
+     * false if the deadline passed first.
+     */
+    private boolean improvePath(long deadline) {
+        while (!open.isEmpty()) {
+            if (goalState != AStarSearch.NO_PARENT && (long) gCosts[goalState] * EPSILON_SCALE <= open.getKey(open.peek())) break;
+            if (expanded % CLOCK_CHECK_INTERVAL == 0 && System.currentTimeMillis() >= deadline) return false;
+
+            int current = open.poll();
+            closed[current >>> 6] |= 1L << current;
+            expanded++;
+
+            int cell = current >> 2;
+            int dir = current & 3;
+            if (cell == goal) continue;
+
+            // Move forward one cell, turn right or turn left on the spot.
+            int row = cell / cols + ROW_INC[dir];
+            int col = cell % cols + COL_INC[dir];
+            if (map.checkValidCoordinates(row, col) && map.isFreeCell(row, col)) {
+                relax(current, (row * cols + col) * 4 + dir, RobotConstants.MOVE_COST);
+            }
+            relax(current, cell * 4 + ((dir + 1) & 3), RobotConstants.TURN_COST);
+            relax(current, cell * 4 + ((dir + 3) & 3), RobotConstants.TURN_COST);
+        }
+        return true;
+    }
+
+    /**
+     * Updates the g(n) value of state next, reached from current with the given transition cost. A closed state that
+     * improves is kept in incons until the next pass.
+     */
+    private void relax(int current, int next, int cost) {
+        int newGScore = gCosts[current] + cost;
+        if (newGScore >= gCosts[next]) return;
+
+        touch(next);
+        gCosts[next] = newGScore;
+        parents[next] = current;
+        if (next >> 2 == goal && (goalState == AStarSearch.NO_PARENT || newGScore < gCosts[goalState])) goalState = next;
+
+        if ((closed[next >>> 6] & (1L << next)) != 0) {
+            if ((inconsistent[next >>> 6] & (1L << next)) == 0) {
+                inconsistent[next >>> 6] |= 1L << next;
+                incons[inconsCount++] = next;
+            }
+        } else if (open.contains(next)) {
+            open.decreaseKey(next, getKey(next));
+        } else {
+            open.insert(next, getKey(next));
+        }
+    }
+
+    private long getKey(int state) {
+        return (long) gCosts[state] * EPSILON_SCALE + (long) epsilon * AStarSearch.headingCostH(state, goal, cols);
+    }
+
+    /**
+     * Returns the bound on the cost of the current plan relative to the fastest path: the smaller of epsilon and the
+     * cost of the plan divided by the lowest g(n) + h(n) of any state in open or incons, which is a lower bound on the
+     * cost of the fastest path.
+     */
+    private double getSuboptimalityBound() {
+        long lowest = Long.MAX_VALUE;
+        for (int i = 0; i < open.size(); i++) {
+            int state = open.get(i);
+            lowest = Math.min(lowest, gCosts[state] + AStarSearch.headingCostH(state, goal, cols));
+        }
+        for (int i = 0; i < inconsCount; i++) {
+            lowest = Math.min(lowest, gCosts[incons[i]] + AStarSearch.headingCostH(incons[i], goal, cols));
+        }
+
+        if (lowest >= planCost) return 1;
+
+        return Math.min(epsilon / (double) EPSILON_SCALE, planCost / (double) lowest);
+    }
+
+    /**
+     * Builds a PathPlan from the parent chain of the best goal state, skipping states where the robot only turned.
+     *
+     * The parent of a state that improved after it was reached is updated, so the chain can be cheaper than g(n) of
+     * the goal state. The cost of the plan is that of the chain.
+     */
+    private PathPlan buildPlan(int startRow, int startCol, DIRECTION startDir, int goalRow, int goalCol) {
+        int length = 0;
+        int lastCell = AStarSearch.NO_PARENT;
+        planCost = 0;
+        for (int s = goalState; s != AStarSearch.NO_PARENT; s = parents[s]) {
+            if (s >> 2 != lastCell) {
+                lastCell = s >> 2;
+                length++;
+            }
+            if (parents[s] != AStarSearch.NO_PARENT) {
+                planCost += parents[s] >> 2 == s >> 2 ? RobotConstants.TURN_COST : RobotConstants.MOVE_COST;
+            }
+        }
+
+        int[] cells = new int[length];
+        lastCell = AStarSearch.NO_PARENT;
+        for (int s = goalState; s != AStarSearch.NO_PARENT; s = parents[s]) {
+            if (s >> 2 != lastCell) {
+                lastCell = s >> 2;
+                cells[--length] = lastCell;
+            }
+        }
+        return new PathPlan(startRow, startCol, startDir, goalRow, goalCol, cols, cells, planCost, expanded);
+    }
+
+    /**
+     * Records a state that is about to be written for the first time in this query.
+     */
+    private void touch(int state) {
+        if (gCosts[state] == Integer.MAX_VALUE) {
+            touched[touchedCount++] = state;
+        }
+    }
+
+    /**
+     * Restores the entries of all touched states to their initial values.
+     */
+    private void reset() {
+        for (int i = 0; i < touchedCount; i++) {
+            int state = touched[i];
+            gCosts[state] = Integer.MAX_VALUE;
+            parents[state] = AStarSearch.NO_PARENT;
+            closed[state >>> 6] = 0L;
+            inconsistent[state >>> 6] = 0L;
+        }
+        touchedCount = 0;
+        inconsCount = 0;
+        open.clear();
+        goalState = AStarSearch.NO_PARENT;
+        expanded = 0;
+        passes = 0;
+        bound = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the bound on the cost of the last plan as a multiple of the cost of the fastest path; 1 if it is the
+     * fastest path.
+     */
+    public double getBound() {
+        return bound;
+    }
+
+    /**
+     * Returns the no. of passes completed by the last query.
+     */
+    public int getPasses() {
+        return passes;
+    }
+
+    /**
+     * Returns the no. of states expanded by the last query over all passes.
+     */
+    public int getExpanded() {
+        return expanded;
+    }
+
+    public MapReader getMap() {
+        return map;
+    }
+}
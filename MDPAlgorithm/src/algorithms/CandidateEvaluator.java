@@ -0,0 +1,230 @@
+package algorithms;
+
+import map.MapReader;
+import robot.RobotConstants;
+import robot.RobotConstants.DIRECTION;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// @formatter:off
+/**
+ * Parallel evaluator of exploration targets, used by ExplorationAlgo to choose between frontier cells.
+ *
+ * Up to maxCandidates target cells are taken, the nearest first by Manhattan distance, and a heading-aware A* search
+ * from the robot to each of them runs on a ForkJoinPool against a MapSnapshot, which any thread can read. Every worker
+ * thread keeps its own AStarSearch, so the searches do not allocate. Each reachable candidate is scored by:
+ *
+ * score(n) = cost(n) - gainWeight * gain(n)
+ *
+ * cost(n) = cost of the fastest path from the robot to n
+ * gain(n) = no. of unexplored cells within GAIN_RADIUS of n, i.e. the cells the sensors can observe from n
+ *
+ * and the candidate with the lowest score is returned.
+ *
+ * Candidates at the same distance, and candidates with the same score, are ordered by a shuffle seeded with the seed
+ * of the evaluator, the state hash of the map and the robot's state. The result therefore only depends on those, and
+ * not on the no. of threads or the order in which the searches finish.
+ */
+// @formatter:on
+
+public class CandidateEvaluator {
+    static final int GAIN_RADIUS = 1 + RobotConstants.SENSOR_SHORT_RANGE_H;   // robot body + short range sensors
+    private static final int UNREACHABLE = Integer.MAX_VALUE;                   // cost of a candidate without a path
+
+    private final int rows;
+    private final int cols;
+    private final ForkJoinPool pool;
+    private final int maxCandidates;
+    private final long seed;
+    private final ThreadLocal<AStarSearch> searches;
+    private int gainWeight = RobotConstants.MOVE_COST;  // cost worth one unexplored cell
+    private int bestCost;
+    private int bestGain;
+    private int evaluated;
+
+    public CandidateEvaluator(int rows, int cols, int maxCandidates, long seed) {
+        this(rows, cols, ForkJoinPool.commonPool(), maxCandidates, seed);
+    }
+
+    public CandidateEvaluator(int rows, int cols, ForkJoinPool pool, int maxCandidates, long seed) {
+        if (maxCandidates < 1) throw new IllegalArgumentException("Max candidates must be at least 1: " + maxCandidates);
+
+        this.rows = rows;
+        this.cols = cols;
+        this.pool = pool;
+        this.maxCandidates = maxCandidates;
+        this.seed = seed;
+        this.searches = ThreadLocal.withInitial(() -> {
+            AStarSearch search = new AStarSearch(rows, cols);
+            search.setHeadingAware(true);
+            return search;
+        });
+    }
+
+    /**
+     * Sets the cost that one unexplored cell in view of a candidate is worth, MOVE_COST by default. 0 chooses the
+     * nearest candidate.
+     */
+    public void setGainWeight(int gainWeight) {
+        this.gainWeight = gainWeight;
+    }
+
+    public int getGainWeight() {
+        return gainWeight;
+    }
+
+    /**
+     * Returns the cell (row * cols + col) of the best of the candidate cells for a robot at [startRow, startCol] facing
+     * startDir, or -1 if none of the evaluated candidates can be reached. The map should be a MapSnapshot, as it is
+     * read by the threads of the pool.
+     */
+    public int evaluate(MapReader map, int startRow, int startCol, DIRECTION startDir, BitSet candidates) {
+        if (map.getRows() != rows || map.getCols() != cols) throw new IllegalArgumentException("Map is " + map.getRows() + "x" + map.getCols() + ", expected " + rows + "x" + cols);
+
+        int[] cells = selectCandidates(map, startRow, startCol, startDir, candidates);
+        int[] costs = new int[cells.length];
+        int[] gains = new int[cells.length];
+        pool.invoke(new EvaluateTask(map, startRow, startCol, startDir, cells, costs, gains, 0, cells.length));
+        evaluated = cells.length;
+
+        // Reduce in candidate order, so that ties go to the earliest candidate whatever the order of completion.
+        int best = -1;
+        long bestScore = Long.MAX_VALUE;
+        for (int i = 0; i < cells.length; i++) {
+            if (costs[i] == UNREACHABLE) continue;
+
+            long score = costs[i] - (long) gainWeight * gains[i];
+            if (score < bestScore) {
+                bestScore = score;
+                best = i;
+            }
+        }
+        if (best < 0) return -1;
+
+        bestCost = costs[best];
+        bestGain = gains[best];
+        return cells[best];
+    }
+
+    /**
+     * Returns up to maxCandidates of the candidate cells, nearest first, with cells at the same distance in seeded
+     * random order.
+     */
+    private int[] selectCandidates(MapReader map, int startRow, int startCol, DIRECTION startDir, BitSet candidates) {
+        int[] cells = candidates.stream().toArray();
+        SplittableRandom random = new SplittableRandom(seed ^ map.getStateHash() ^ ((startRow * (long) cols + startCol) * 4 + startDir.ordinal()));
+        for (int i = cells.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = cells[i];
+            cells[i] = cells[j];
+            cells[j] = tmp;
+        }
+
+        // Sort on distance, then on position in the shuffle.
+        long[] keys = new long[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            int distance = Math.abs(cells[i] / cols - startRow) + Math.abs(cells[i] % cols - startCol);
+            keys[i] = ((long) distance << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        int[] result = new int[Math.min(cells.length, maxCandidates)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = cells[(int) keys[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the no. of unexplored cells within GAIN_RADIUS of a cell.
+     */
+    static int getGain(MapReader map, int cell) {
+        int row = cell / map.getCols();
+        int col = cell % map.getCols();
+        int gain = 0;
+        for (int r = Math.max(0, row - GAIN_RADIUS); r <= Math.min(map.getRows() - 1, row + GAIN_RADIUS); r++) {
+            for (int c = Math.max(0, col - GAIN_RADIUS); c <= Math.min(map.getCols() - 1, col + GAIN_RADIUS); c++) {
+                if (!map.isExploredCell(r, c)) gain++;
+            }
+        }
+        return gain;
+    }
+
+    /**
+     * Returns the path cost to the cell returned by the last call to evaluate().
+     */
+    public int getBestCost() {
+        return bestCost;
+    }
+
+    /**
+     * Returns the information gain of the cell returned by the last call to evaluate().
+     */
+    public int getBestGain() {
+        return bestGain;
+    }
+
+    /**
+     * Returns the no. of candidates evaluated by the last call to evaluate().
+     */
+    public int getEvaluated() {
+        return evaluated;
+    }
+
+    public int getMaxCandidates() {
+        return maxCandidates;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Evaluates the candidates in [from, to), splitting the range in halves down to single candidates.
+     */
+    private final class EvaluateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final MapReader map;
+        private final int startRow;
+        private final int startCol;
+        private final DIRECTION startDir;
+        private final int[] cells;
+        private final int[] costs;
+        private final int[] gains;
+        private final int from;
+        private final int to;
+
+        EvaluateTask(MapReader map, int startRow, int startCol, DIRECTION startDir, int[] cells, int[] costs, int[] gains, int from, int to) {
+            this.map = map;
+            this.startRow = startRow;
+            this.startCol = startCol;
+            this.startDir = startDir;
+            this.cells = cells;
+            this.costs = costs;
+            this.gains = gains;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new EvaluateTask(map, startRow, startCol, startDir, cells, costs, gains, from, mid),
+                        new EvaluateTask(map, startRow, startCol, startDir, cells, costs, gains, mid, to));
+                return;
+            }
+            if (from == to) return;
+
+            AStarSearch search = searches.get();
+            int cell = cells[from];
+            costs[from] = search.search(map, startRow, startCol, startDir, cell / cols, cell % cols) ? search.getGoalCost() : UNREACHABLE;
+            gains[from] = getGain(map, cell);
+        }
+    }
+}
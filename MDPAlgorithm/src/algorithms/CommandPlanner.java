@@ -0,0 +1,297 @@
+package algorithms;
+
+import map.MapReader;
+import robot.RobotConstants;
+import robot.RobotConstants.DIRECTION;
+
+import java.util.Arrays;
+
+// @formatter:off
+/**
+ * Fastest path planner that minimises the predicted execution time on the real robot instead of grid steps.
+ *
+ * On the real robot every instruction is a separate message with a latency until the Arduino acknowledges it,
+ * consecutive forward moves are sent as one multi-forward instruction of up to MAX_FORWARD_STEPS cells, and each turn
+ * is an instruction of its own. The search therefore runs over (row, col, DIRECTION) states with these transitions:
+ *
+ * turn left / right    = latency + TURN_TIME
+ * forward k cells      = latency + k * MOVE_TIME, for 1 <= k <= MAX_FORWARD_STEPS
+ *
+ * so that among paths of equal length, those with fewer turns and longer straight runs are preferred. The cost of the
+ * returned PathPlan is the predicted execution time in ms.
+ *
+ * The latency is INSTRUCTION_LATENCY unless set with setInstructionLatency(), e.g. to the latency measured by the
+ * SendWindow of CommMgr.
+ *
+ * As in AStarSearch, a route through a waypoint is planned in one search over (leg, row, col, DIRECTION) states, and
+ * the arrays for the second leg are allocated by the first such search.
+ */
+// @formatter:on
+
+public class CommandPlanner {
+    private static final int[] ROW_INC = {1, 0, -1, 0};     // row increment of a forward move, by DIRECTION
+    private static final int[] COL_INC = {0, 1, 0, -1};     // col increment of a forward move, by DIRECTION
+
+    private final MapReader map;
+    private final int cols;
+    private final int layerSize;        // no. of (row, col, DIRECTION) states in one leg
+    private int[] gCosts;
+    private int[] parents;
+    private long[] closed;
+    private int[] touched;
+    private int touchedCount;
+    private IndexedMinHeap open;
+    private int goal;
+    private int waypoint;               // waypoint cell of the current search, or NO_PARENT
+    private int waypointCostH;          // lower bound on the time from the waypoint to the goal
+    private int expanded;
+    private int instructionLatency = RobotConstants.INSTRUCTION_LATENCY;
+
+    public CommandPlanner(MapReader map) {
+        this.map = map;
+        this.cols = map.getCols();
+        this.layerSize = map.getCellCount() * 4;
+        allocate(layerSize);
+    }
+
+    /**
+     * Allocates the arrays for numStates states, all in their initial state.
+     */
+    private void allocate(int numStates) {
+        this.gCosts = new int[numStates];
+        this.parents = new int[numStates];
+        this.closed = new long[(numStates + 63) >>> 6];
+        this.touched = new int[numStates];
+        this.open = new IndexedMinHeap(numStates);
+
+        Arrays.fill(gCosts, Integer.MAX_VALUE);
+        Arrays.fill(parents, AStarSearch.NO_PARENT);
+    }
+
+    /**
+     * Sets the time in ms charged for sending one instruction, on top of the time the robot takes to execute it.
+     */
+    public void setInstructionLatency(int instructionLatency) {
+        if (instructionLatency < 0) throw new IllegalArgumentException("Invalid instruction latency: " + instructionLatency);
+
+        this.instructionLatency = instructionLatency;
+    }
+
+    public int getInstructionLatency() {
+        return instructionLatency;
+    }
+
+    /**
+     * Returns the path from [startRow, startCol] facing startDir to [goalRow, goalCol] with the lowest predicted
+     * execution time, or null if the goal cannot be reached.
+     */
+    public PathPlan plan(int startRow, int startCol, DIRECTION startDir, int goalRow, int goalCol) {
+        return planViaWaypoint(startRow, startCol, startDir, AStarSearch.NO_PARENT, AStarSearch.NO_PARENT, goalRow, goalCol);
+    }
+
+    /**
+     * Returns the path from [startRow, startCol] facing startDir to [goalRow, goalCol] that passes
+     * [waypointRow, waypointCol] with the lowest predicted execution time, or null if there is none. Passing NO_PARENT
+     * as waypointRow plans without a waypoint.
+     */
+    public PathPlan planViaWaypoint(int startRow, int startCol, DIRECTION startDir, int waypointRow, int waypointCol, int goalRow, int goalCol) {
+        reset();
+        goal = goalRow * cols + goalCol;
+        waypoint = waypointRow == AStarSearch.NO_PARENT ? AStarSearch.NO_PARENT : waypointRow * cols + waypointCol;
+        if (waypoint != AStarSearch.NO_PARENT) {
+            if (gCosts.length < 2 * layerSize) allocate(2 * layerSize);     // first search with a second leg
+            waypointCostH = Integer.MAX_VALUE;
+            for (int dir = 0; dir < 4; dir++) {
+                waypointCostH = Math.min(waypointCostH, costH(waypoint * 4 + dir, goal, false));
+            }
+        }
+
+        int start = (startRow * cols + startCol) * 4 + startDir.ordinal();
+        touch(start);
+        gCosts[start] = 0;
+        open.insert(start, getCostH(start));
+
+        while (!open.isEmpty()) {
+            expanded++;
+            int current = open.poll();
+            closed[current >>> 6] |= 1L << current;
+
+            int leg = current >= layerSize ? layerSize : 0;
+            int cell = (current - leg) >> 2;
+            int dir = current & 3;
+            if (waypoint != AStarSearch.NO_PARENT && leg == 0) {
+                // Before the waypoint, reaching it only switches to the second leg without moving.
+                if (cell == waypoint) {
+                    relax(current, current + layerSize, 0);
+                    continue;
+                }
+            } else if (cell == goal) {
+                return buildPlan(startRow, startCol, startDir, current);
+            }
+
+            relax(current, current - dir + ((dir + 1) & 3), instructionLatency + RobotConstants.TURN_TIME);
+            relax(current, current - dir + ((dir + 3) & 3), instructionLatency + RobotConstants.TURN_TIME);
+
+            // One multi-forward instruction of k cells. Passing the waypoint on the way switches to the second leg.
+            int row = cell / cols;
+            int col = cell % cols;
+            int nextLeg = leg;
+            for (int k = 1; k <= RobotConstants.MAX_FORWARD_STEPS; k++) {
+                row += ROW_INC[dir];
+                col += COL_INC[dir];
+                if (!map.checkValidCoordinates(row, col) || !map.isFreeCell(row, col)) break;
+
+                if (row * cols + col == waypoint) nextLeg = layerSize;
+                relax(current, nextLeg + (row * cols + col) * 4 + dir, instructionLatency + k * RobotConstants.MOVE_TIME);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the number of states expanded in the last query.
+     */
+    public int getExpanded() {
+        return expanded;
+    }
+
+    public MapReader getMap() {
+        return map;
+    }
+
+    /**
+     * Returns the predicted time in ms for the real robot to execute a plan with the default INSTRUCTION_LATENCY.
+     */
+    public static int getExecutionTime(PathPlan plan) {
+        return getExecutionTime(plan, RobotConstants.INSTRUCTION_LATENCY);
+    }
+
+    /**
+     * Returns the predicted time in ms for the real robot to execute a plan, counting one instruction per turn and
+     * per run of up to MAX_FORWARD_STEPS forward moves as FastestPathAlgo sends them, each with the given latency.
+     */
+    public static int getExecutionTime(PathPlan plan, int instructionLatency) {
+        int time = 0;
+        int dir = plan.getStartDir().ordinal();
+        int forwardCount = 0;
+
+        for (int i = 1; i < plan.size(); i++) {
+            int rowDiff = plan.getRow(i) - plan.getRow(i - 1);
+            int colDiff = plan.getCol(i) - plan.getCol(i - 1);
+            int nextDir = rowDiff > 0 ? 0 : (colDiff > 0 ? 1 : (rowDiff < 0 ? 2 : 3));
+
+            int numOfTurn = (nextDir - dir) & 3;
+            if (numOfTurn != 0) {
+                forwardCount = 0;
+                time += (numOfTurn == 2 ? 2 : 1) * (instructionLatency + RobotConstants.TURN_TIME);
+                dir = nextDir;
+            }
+
+            if (forwardCount == 0) time += instructionLatency;
+            forwardCount = (forwardCount + 1) % RobotConstants.MAX_FORWARD_STEPS;
+            time += RobotConstants.MOVE_TIME;
+        }
+        return time;
+    }
+
+    /**
+     * Updates the g(n) value of state next, reached from current with the given transition time.
+     */
+    private void relax(int current, int next, int cost) {
+        if (isClosed(next)) return;
+
+        int newGScore = gCosts[current] + cost;
+        if (!open.contains(next)) {
+            touch(next);
+            parents[next] = current;
+            gCosts[next] = newGScore;
+            open.insert(next, newGScore + getCostH(next));
+        } else if (newGScore < gCosts[next]) {
+            parents[next] = current;
+            gCosts[next] = newGScore;
+            open.decreaseKey(next, newGScore + getCostH(next));
+        }
+    }
+
+    /**
+     * Returns h(n) of a state of the current search.
+     */
+    private int getCostH(int state) {
+        if (state >= layerSize) return costH(state - layerSize, goal, true);
+        if (waypoint == AStarSearch.NO_PARENT) return costH(state, goal, true);
+
+        return costH(state, waypoint, true) + waypointCostH;
+    }
+
+    /**
+     * Returns a lower bound on the time from a (row, col, DIRECTION) state to cell b: the fewest turns, the moves and,
+     * if countForward is set, the fewest multi-forward instructions needed along each axis. The instruction count is
+     * left out of the bound from the waypoint, where a forward instruction may already have been started.
+     */
+    private int costH(int state, int b, boolean countForward) {
+        int a = state >> 2;
+        int rowDist = Math.abs(b / cols - a / cols);
+        int colDist = Math.abs(b % cols - a % cols);
+
+        int time = AStarSearch.getMinNumOfTurn(state, b, cols) * (instructionLatency + RobotConstants.TURN_TIME) + (rowDist + colDist) * RobotConstants.MOVE_TIME;
+        if (countForward) {
+            int steps = RobotConstants.MAX_FORWARD_STEPS;
+            time += ((rowDist + steps - 1) / steps + (colDist + steps - 1) / steps) * instructionLatency;
+        }
+        return time;
+    }
+
+    private boolean isClosed(int index) {
+        return (closed[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Records a state that is about to be written for the first time in this search.
+     */
+    private void touch(int state) {
+        if (gCosts[state] == Integer.MAX_VALUE) {
+            touched[touchedCount++] = state;
+        }
+    }
+
+    /**
+     * Restores the entries of all touched states to their initial values.
+     */
+    private void reset() {
+        for (int i = 0; i < touchedCount; i++) {
+            int state = touched[i];
+            gCosts[state] = Integer.MAX_VALUE;
+            parents[state] = AStarSearch.NO_PARENT;
+            closed[state >>> 6] = 0L;
+        }
+        touchedCount = 0;
+        open.clear();
+        expanded = 0;
+    }
+
+    /**
+     * Fills in the cells of every forward instruction and packs the path into a PathPlan.
+     */
+    private PathPlan buildPlan(int startRow, int startCol, DIRECTION startDir, int goalState) {
+        int length = 1;
+        for (int s = goalState; parents[s] != AStarSearch.NO_PARENT; s = parents[s]) {
+            int a = (parents[s] % layerSize) >> 2;
+            int b = (s % layerSize) >> 2;
+            length += Math.abs(b / cols - a / cols) + Math.abs(b % cols - a % cols);
+        }
+
+        int[] cells = new int[length];
+        for (int s = goalState; parents[s] != AStarSearch.NO_PARENT; s = parents[s]) {
+            int cell = (s % layerSize) >> 2;
+            int step = ROW_INC[s & 3] * cols + COL_INC[s & 3];
+            while (cell != (parents[s] % layerSize) >> 2) {
+                cells[--length] = cell;
+                cell -= step;
+            }
+        }
+        cells[0] = startRow * cols + startCol;
+
+        return new PathPlan(startRow, startCol, startDir, goal / cols, goal % cols, cols, cells, gCosts[goalState], expanded);
+    }
+}
@@ -0,0 +1,143 @@
+package algorithms;
+
+import map.MapReader;
+import robot.RobotConstants;
+import robot.RobotConstants.DIRECTION;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// @formatter:off
+/**
+ * Cache of distance fields for a few fixed targets such as START, GOAL and the waypoint.
+ *
+ * A distance field holds the exact cost from every (row, col, DIRECTION) state to the target, including turn costs,
+ * and is computed by one reverse Dijkstra search from the target. Each field remembers the state hash of the map it was
+ * computed for and is recomputed on the next query after the map has changed to a different state.
+ *
+ * A field gives the cost to a target in O(1), and is a perfect heuristic for the heading-aware A*. States from which
+ * the target cannot be reached hold Integer.MAX_VALUE, so fields of any arena size are exact.
+ */
+// @formatter:on
+
+public class DistanceFieldCache {
+    private static final int[] ROW_INC = {1, 0, -1, 0};     // row increment of a forward move, by DIRECTION
+    private static final int[] COL_INC = {0, 1, 0, -1};     // col increment of a forward move, by DIRECTION
+
+    private final MapReader map;
+    private final int cols;
+    private final ArrayList<DistanceField> fields = new ArrayList<>();
+    private final IndexedMinHeap open;
+
+    public DistanceFieldCache(MapReader map) {
+        this.map = map;
+        this.cols = map.getCols();
+        this.open = new IndexedMinHeap(map.getCellCount() * 4);
+    }
+
+    /**
+     * Adds [row, col] to the targets for which distance fields are kept. Adding a target twice has no effect.
+     */
+    public void addTarget(int row, int col) {
+        if (findField(row * cols + col) == null) {
+            fields.add(new DistanceField(row * cols + col, map.getCellCount() * 4));
+        }
+    }
+
+    /**
+     * Returns true if [row, col] is one of the targets of this cache.
+     */
+    public boolean hasTarget(int row, int col) {
+        return findField(row * cols + col) != null;
+    }
+
+    /**
+     * Returns the cost of the fastest path from [row, col] facing dir to the target [targetRow, targetCol], or
+     * Integer.MAX_VALUE if the target cannot be reached or is not a target of this cache.
+     */
+    public int getCost(int targetRow, int targetCol, int row, int col, DIRECTION dir) {
+        int[] costs = getField(targetRow, targetCol);
+        if (costs == null) return Integer.MAX_VALUE;
+
+        return costs[(row * cols + col) * 4 + dir.ordinal()];
+    }
+
+    /**
+     * Returns the up-to-date distance field of a target indexed by state (cell * 4 + direction), or null if
+     * [targetRow, targetCol] is not a target of this cache. The returned array must not be modified.
+     */
+    int[] getField(int targetRow, int targetCol) {
+        DistanceField field = findField(targetRow * cols + targetCol);
+        if (field == null) return null;
+
+        if (!field.computed || field.stateHash != map.getStateHash()) {
+            computeField(field);
+            field.stateHash = map.getStateHash();
+            field.computed = true;
+        }
+        return field.costs;
+    }
+
+    private DistanceField findField(int target) {
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.get(i).target == target) return fields.get(i);
+        }
+        return null;
+    }
+
+    /**
+     * Runs Dijkstra backwards from the four states at the target over the reversed move and turn transitions.
+     */
+    private void computeField(DistanceField field) {
+        int[] costs = field.costs;
+        Arrays.fill(costs, Integer.MAX_VALUE);
+        open.clear();
+
+        for (int dir = 0; dir < 4; dir++) {
+            costs[field.target * 4 + dir] = 0;
+            open.insert(field.target * 4 + dir, 0);
+        }
+
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            int cell = current >> 2;
+            int dir = current & 3;
+
+            // Turning on the spot from either side leads to current.
+            relax(costs, current, cell * 4 + ((dir + 1) & 3), RobotConstants.TURN_COST);
+            relax(costs, current, cell * 4 + ((dir + 3) & 3), RobotConstants.TURN_COST);
+
+            // Moving forward from the cell behind leads to current if its cell can be entered.
+            int row = cell / cols - ROW_INC[dir];
+            int col = cell % cols - COL_INC[dir];
+            if (map.checkValidCoordinates(row, col) && map.isFreeCell(cell / cols, cell % cols)) {
+                relax(costs, current, (row * cols + col) * 4 + dir, RobotConstants.MOVE_COST);
+            }
+        }
+    }
+
+    private void relax(int[] costs, int current, int prev, int cost) {
+        int newCost = costs[current] + cost;
+        if (newCost >= costs[prev]) return;
+
+        boolean queued = open.contains(prev);
+        costs[prev] = newCost;
+        if (queued) {
+            open.decreaseKey(prev, newCost);
+        } else {
+            open.insert(prev, newCost);
+        }
+    }
+
+    private static class DistanceField {
+        private final int target;
+        private final int[] costs;
+        private long stateHash;
+        private boolean computed;
+
+        private DistanceField(int target, int numStates) {
+            this.target = target;
+            this.costs = new int[numStates];
+        }
+    }
+}
@@ -1,17 +1,16 @@
 package algorithms;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.BitSet;
 import java.util.regex.Pattern;
 
-import map.Cell;
+import map.ConfigurationSpace;
 import map.Map;
-import map.MapConstants;
 import robot.Robot;
 import robot.RobotConstants;
 import robot.RobotConstants.DIRECTION;
 import robot.RobotConstants.MOVEMENT;
 import utils.CommMgr;
+import utils.Log;
 
 /**
  * Exploration algorithm for the robot.
@@ -22,8 +21,12 @@ import utils.CommMgr;
 
 public class ExplorationAlgo {
     private final Map exploredMap;
+    private final ConfigurationSpace cspace;
     private final Map realMap;
     private final Robot bot;
+    private final PathPlanner planner;
+    private final DistanceFieldCache distanceFields;    // distance field to START for the return-home deadline
+    private CandidateEvaluator candidateEvaluator;      // chooses between observation cells, or null for the nearest
     private final int coverageLimit;
     private final int timeLimit;
     private int areaExplored;
@@ -35,12 +38,35 @@ public class ExplorationAlgo {
 
     public ExplorationAlgo(Map exploredMap, Map realMap, Robot bot, int coverageLimit, int timeLimit) {
         this.exploredMap = exploredMap;
+        this.cspace = exploredMap.getConfigurationSpace();
         this.realMap = realMap;
         this.bot = bot;
+        this.planner = new PathPlanner(exploredMap);
+        this.distanceFields = new DistanceFieldCache(exploredMap);
+        this.distanceFields.addTarget(RobotConstants.START_ROW, RobotConstants.START_COL);
+        this.planner.setHeadingAware(true);
+        this.planner.setDistanceFields(distanceFields);
         this.coverageLimit = coverageLimit;
         this.timeLimit = timeLimit;
     }
 
+    /**
+     * Sets the evaluator used to choose the next observation cell by path cost and information gain, or null (the
+     * default) to go to the nearest one.
+     */
+    public void setCandidateEvaluator(CandidateEvaluator candidateEvaluator) {
+        this.candidateEvaluator = candidateEvaluator;
+    }
+
+    /**
+     * Sets the cache of plans of the planner shared by this exploration, or null (the default) for none. With a cache,
+     * the first path of every trip in goHome() is taken from the cache if the same trip was already planned on a map in
+     * the same state.
+     */
+    public void setPathCache(PathCache pathCache) {
+        planner.setPathCache(pathCache);
+    }
+
     /**
      * Main method that is called to start the exploration.
      */
@@ -71,14 +97,14 @@ public class ExplorationAlgo {
         endTime = startTime + (timeLimit * 1000);
 
 
-        System.out.println("Setting end time as : " + endTime);
+        Log.info("Setting end time as : " + endTime);
 
         //Initialize
         //First senseAndRepaint()
         senseAndRepaint();
         //First explored area
         areaExplored = calculateAreaExplored();
-        System.out.println("\nExplored Area: " + areaExplored + "\n");
+        Log.info("\nExplored Area: " + areaExplored + "\n");
 
         //Start moving
         explorationLoop(bot.getRobotPosRow(), bot.getRobotPosCol());
@@ -96,7 +122,7 @@ public class ExplorationAlgo {
 
             //every move check area explored
             areaExplored = calculateAreaExplored();
-            System.out.println("Area explored: " + areaExplored);
+            if (Log.isDebugEnabled()) Log.debug("Area explored: " + areaExplored);
 
             // if robot back to starting position of exploration loop
             //start to check for unexplored
@@ -105,111 +131,90 @@ public class ExplorationAlgo {
                 timesUp = false;
 
                 //handle unexplored, those cell in the middle
-                List<Cell>  unexploredCells =  getUnexploredCell(exploredMap);
-                //loop through all unexplored cell
-                //Checking unexplored cell
-                System.out.println("The unexplored cells are : ");
-                for(int i=0; i<unexploredCells.size();i++) {
-                    System.out.println("(" + unexploredCells.get(i).getRow() + "," + unexploredCells.get(i).getCol() + ")") ;
-                }
-
-                for(int i=0;i<unexploredCells.size();i++) {
-                    if(unexploredCells.get(i).getIsExplored()) {
-                        continue;
+                //repeatedly go to the nearest reachable cell adjacent to an unexplored cell
+                BitSet triedCells = new BitSet(exploredMap.getCellCount());
+                while (true) {
+                    if (System.currentTimeMillis() > endTime) {
+                        timesUp = true;
+                        break;
+                    }
+                    //fully explored, or no unexplored cell can be observed, read from the counters kept by the map
+                    if (exploredMap.countUnexplored() == 0 || exploredMap.countFrontier() == 0) {
+                        break;
+                    }
+                    //checked once per target, as the field is recomputed whenever the map has changed
+                    if (mustReturnHome()) {
+                        break;
                     }
-                    //get adj cell of the unexplored cell
-                    List<Cell> adjacentCells = getAdjacentCell(unexploredCells.get(i), exploredMap);
 
-                    System.out.println("The adjacent cells are : ");
-                    for(int j=0 ; j<adjacentCells.size(); j++){
-                        System.out.println("(" + adjacentCells.get(j).getRow() + "," + adjacentCells.get(j).getCol() + ")") ;
+                    BitSet targetCells = getObservationCells(triedCells);
+                    if (targetCells.isEmpty()) {
+                        break;
                     }
 
-                    if(!adjacentCells.isEmpty()) {
-                        //loop through all adjacent cells of the unexplored cells and try and find path
-                        for(int j=0 ;j<adjacentCells.size();j++) {
-                            //try and find from bot current position to unexplored cell
-                            FastestPathAlgo goToGoal = new FastestPathAlgo(exploredMap, bot, realMap);
-                            if(System.currentTimeMillis() <= endTime) {
-                                if(goToGoal.runFastestPath(adjacentCells.get(j).getRow(), adjacentCells.get(j).getCol()) != null) {
-                                    areaExplored = calculateAreaExplored();
-                                    System.out.println("Area explored: " + areaExplored);
-                                    break;
-                                }
-                            } else{
-                                timesUp = true;
-                                break;
-                            }
+                    //narrow the targets down to the best scoring one if an evaluator is set
+                    if (candidateEvaluator != null) {
+                        int target = candidateEvaluator.evaluate(exploredMap.snapshot(), bot.getRobotPosRow(), bot.getRobotPosCol(), bot.getRobotCurDir(), targetCells);
+                        if (target >= 0) {
+                            if (Log.isDebugEnabled()) Log.debug("Best of " + candidateEvaluator.getEvaluated() + " observation cells: " + target + " (cost " + candidateEvaluator.getBestCost() + ", gain " + candidateEvaluator.getBestGain() + ")");
+                            targetCells.clear();
+                            targetCells.set(target);
                         }
                     }
-                    if( timesUp == true){
+
+                    //one search from bot current position to the nearest target
+                    PathPlan plan = planner.planToNearest(bot.getRobotPosRow(), bot.getRobotPosCol(), bot.getRobotCurDir(), targetCells);
+                    if (plan == null) {
                         break;
                     }
 
+                    //never pick the same target twice, even if the robot had to stop early
+                    triedCells.set(plan.getGoalRow() * exploredMap.getCols() + plan.getGoalCol());
+
+                    if (Log.isInfoEnabled()) Log.info("Going to nearest observation cell (" + plan.getGoalRow() + "," + plan.getGoalCol() + ")");
+                    FastestPathAlgo goToTarget = new FastestPathAlgo(exploredMap, bot, realMap, planner);
+                    goToTarget.executePlan(plan);
+                    areaExplored = calculateAreaExplored();
+                    if (Log.isDebugEnabled()) Log.debug("Area explored: " + areaExplored);
                 }
 
 
-                if (areaExplored >=100){
+                if (areaExplored >= exploredMap.getCellCount() / 3){
                     break;
                 }
             }
 
 
-            System.out.println("Current time now : " + System.currentTimeMillis());
+            if (Log.isDebugEnabled()) Log.debug("Current time now : " + System.currentTimeMillis());
 
 
         } while (areaExplored <= coverageLimit && System.currentTimeMillis() <= endTime);
 
-        System.out.println("CAMEEOUTT");
+        Log.debug("Exploration loop finished, returning to START");
 
         goHome();
 
-        System.out.println("Exploration complete!");
+        Log.info("Exploration complete!");
         areaExplored = calculateAreaExplored();
-        System.out.printf("%.2f%% Coverage", (areaExplored / 300.0) * 100.0);
-        System.out.println(", " + areaExplored + " Cells");
-        System.out.println((System.currentTimeMillis() - startTime) / 1000 + " Seconds");
-
-
-    }
-
-    private boolean inStartZone(int row, int col) {
-        return row >= 0 && row <= 2 && col >= 0 && col <= 2;
-    }
-
+        if (Log.isInfoEnabled()) {
+            Log.info(String.format("%.2f%% Coverage", (areaExplored / (double) exploredMap.getCellCount()) * 100.0) + ", " + areaExplored + " Cells");
+            Log.info((System.currentTimeMillis() - startTime) / 1000 + " Seconds");
+        }
 
-    //adjacent cells list that are explored
-    private List<Cell> getAdjacentCell(Cell unexploredCell, Map exploredMap){
-        List<Cell> unexploredAdjacentCells = new ArrayList<Cell>();
-        //set the boundary of the adjacent cells to 2
 
-        for(int i=unexploredCell.getRow()-1; i <= unexploredCell.getRow()+1; i++) {
-            for(int j=unexploredCell.getCol()-1; j <= unexploredCell.getCol()+1; j++) {
-                if(i<MapConstants.MAP_ROWS && i>=0 && j<MapConstants.MAP_COLS && j >=0) {
-                    Cell adjCell = exploredMap.getCell(i, j);
-                    if(adjCell.getIsExplored() && !inStartZone(adjCell.getRow(),adjCell.getCol()) && !adjCell.getIsObstacle() && !adjCell.getIsVirtualWall()) {
-                        unexploredAdjacentCells.add(adjCell);
-                    } else {
-                        System.out.println("denied: "+adjCell.getRow() + " " + adjCell.getCol());
-                    }
-                }
-            }
-        }
-        return unexploredAdjacentCells;
     }
 
-    //return an array of array of cell object
-    private List<Cell>  getUnexploredCell(Map exploredMap) {
-        // TODO Auto-generated method stub
-        List<Cell>  unexploredCells = new ArrayList<Cell>();
-        for (int row = 0; row < MapConstants.MAP_ROWS; row++) {
-            for (int col = 0; col < MapConstants.MAP_COLS; col++) {
-                if (!exploredMap.getCell(row,col).getIsExplored()) {
-                    unexploredCells.add(exploredMap.getCell(row,col));
-                }
-            }
+    /**
+     * Returns the set of cells (row * cols + col) adjacent to an unexplored cell that the robot can go to in order
+     * to observe it, leaving out cells in triedCells and the START zone. Read from the frontier kept by the map.
+     */
+    private BitSet getObservationCells(BitSet triedCells) {
+        BitSet targetCells = exploredMap.getFrontierCells();
+        for (int row = 0; row <= 2; row++) {
+            targetCells.clear(row * exploredMap.getCols(), row * exploredMap.getCols() + 3);    // START zone
         }
-        return unexploredCells;
+        targetCells.andNot(triedCells);
+        return targetCells;
     }
 
     //right wall hugging
@@ -237,87 +242,28 @@ public class ExplorationAlgo {
      * Returns true if the right side of the robot is free to move into.
      */
     private boolean lookRight() {
-        switch (bot.getRobotCurDir()) {
-            case NORTH:
-                return eastFree();
-            case EAST:
-                return southFree();
-            case SOUTH:
-                return westFree();
-            case WEST:
-                return northFree();
-        }
-        return false;
+        return canAdvance(DIRECTION.getNext(bot.getRobotCurDir()));
     }
 
     /**
      * Returns true if the robot is free to move forward.
      */
     private boolean lookForward() {
-        switch (bot.getRobotCurDir()) {
-            case NORTH:
-                return northFree();
-            case EAST:
-                return eastFree();
-            case SOUTH:
-                return southFree();
-            case WEST:
-                return westFree();
-        }
-        return false;
+        return canAdvance(bot.getRobotCurDir());
     }
 
     /**
      * * Returns true if the left side of the robot is free to move into.
      */
     private boolean lookLeft() {
-        switch (bot.getRobotCurDir()) {
-            case NORTH:
-                return westFree();
-            case EAST:
-                return northFree();
-            case SOUTH:
-                return eastFree();
-            case WEST:
-                return southFree();
-        }
-        return false;
-    }
-
-    /**
-     * Returns true if the robot can move to the north cell.
-     */
-    private boolean northFree() {
-        int botRow = bot.getRobotPosRow();
-        int botCol = bot.getRobotPosCol();
-        return (isExploredNotObstacle(botRow + 1, botCol - 1) && isExploredAndFree(botRow + 1, botCol) && isExploredNotObstacle(botRow + 1, botCol + 1));
-    }
-
-    /**
-     * Returns true if the robot can move to the east cell.
-     */
-    private boolean eastFree() {
-        int botRow = bot.getRobotPosRow();
-        int botCol = bot.getRobotPosCol();
-        return (isExploredNotObstacle(botRow - 1, botCol + 1) && isExploredAndFree(botRow, botCol + 1) && isExploredNotObstacle(botRow + 1, botCol + 1));
-    }
-
-    /**
-     * Returns true if the robot can move to the south cell.
-     */
-    private boolean southFree() {
-        int botRow = bot.getRobotPosRow();
-        int botCol = bot.getRobotPosCol();
-        return (isExploredNotObstacle(botRow - 1, botCol - 1) && isExploredAndFree(botRow - 1, botCol) && isExploredNotObstacle(botRow - 1, botCol + 1));
+        return canAdvance(DIRECTION.getPrevious(bot.getRobotCurDir()));
     }
 
     /**
-     * Returns true if the robot can move to the west cell.
+     * Returns true if the robot can move one cell in direction dir from its current position.
      */
-    private boolean westFree() {
-        int botRow = bot.getRobotPosRow();
-        int botCol = bot.getRobotPosCol();
-        return (isExploredNotObstacle(botRow - 1, botCol - 1) && isExploredAndFree(botRow, botCol - 1) && isExploredNotObstacle(botRow + 1, botCol - 1));
+    private boolean canAdvance(DIRECTION dir) {
+        return cspace.canAdvance(bot.getRobotPosRow(), bot.getRobotPosCol(), dir);
     }
 
     /**
@@ -326,14 +272,12 @@ public class ExplorationAlgo {
     private void goHome() {
 
         //make sure robot touched goal zone
-        if (!bot.getTouchedGoal() && coverageLimit == 300 && timeLimit == 360) {
-            FastestPathAlgo goToGoal = new FastestPathAlgo(exploredMap, bot, realMap);
-            goToGoal.runFastestPath(RobotConstants.GOAL_ROW, RobotConstants.GOAL_COL);
+        if (!bot.getTouchedGoal() && coverageLimit == exploredMap.getCellCount() && timeLimit == 360) {
+            travelTo(exploredMap.getGoalRow(), exploredMap.getGoalCol());
         }
 
 
-        FastestPathAlgo returnToStart = new FastestPathAlgo(exploredMap, bot, realMap);
-        returnToStart.runFastestPath(RobotConstants.START_ROW, RobotConstants.START_COL);
+        travelTo(RobotConstants.START_ROW, RobotConstants.START_COL);
 
         //calibrating at start position?
 //        if (bot.getRealBot()) {
@@ -350,40 +294,60 @@ public class ExplorationAlgo {
     }
 
     /**
-     * Returns true for cells that are explored and not obstacles.
+     * Returns true if the robot has to head back to START now to arrive before endTime. The time is estimated from the
+     * exact cost to START in the explored map at the robot's speed per move, counting a turn as two moves.
      */
-    private boolean isExploredNotObstacle(int r, int c) {
-        if (exploredMap.checkValidCoordinates(r, c)) {
-            Cell tmp = exploredMap.getCell(r, c);
-            return (tmp.getIsExplored() && !tmp.getIsObstacle());
-        }
-        return false;
+    private boolean mustReturnHome() {
+        int costToStart = distanceFields.getCost(RobotConstants.START_ROW, RobotConstants.START_COL, bot.getRobotPosRow(), bot.getRobotPosCol(), bot.getRobotCurDir());
+        if (costToStart == Integer.MAX_VALUE) return false;
+
+        long timeToStart = (long) costToStart * bot.getSpeed() / RobotConstants.MOVE_COST;
+        return System.currentTimeMillis() + timeToStart > endTime;
     }
 
     /**
-     * Returns true for cells that are explored, not virtual walls and not obstacles.
+     * Moves the robot to [goalRow, goalCol]. Whenever the path is cut short by a newly sensed obstacle, the remaining
+     * path is repaired by an IncrementalPlanner instead of being planned again from scratch. If the shared planner has
+     * a PathCache, the first path is planned by it, so that it can be answered from the cache.
      */
-    private boolean isExploredAndFree(int r, int c) {
-        if (exploredMap.checkValidCoordinates(r, c)) {
-            Cell b = exploredMap.getCell(r, c);
-            return (b.getIsExplored() && !b.getIsVirtualWall() && !b.getIsObstacle());
+    private void travelTo(int goalRow, int goalCol) {
+        IncrementalPlanner incrementalPlanner = null;
+        try {
+            boolean firstPath = true;
+            while (true) {
+                int row = bot.getRobotPosRow();
+                int col = bot.getRobotPosCol();
+                DIRECTION dir = bot.getRobotCurDir();
+
+                PathPlan plan;
+                if (firstPath && planner.getPathCache() != null) {
+                    plan = planner.plan(row, col, dir, goalRow, goalCol);
+                } else {
+                    if (incrementalPlanner == null) incrementalPlanner = new IncrementalPlanner(exploredMap, goalRow, goalCol);
+                    plan = incrementalPlanner.plan(row, col, dir);
+                }
+                firstPath = false;
+                if (plan == null) {
+                    Log.info("Path not found!");
+                    return;
+                }
+
+                FastestPathAlgo fastestPath = new FastestPathAlgo(exploredMap, bot, realMap, planner);
+                if (!"T".equals(fastestPath.executePlan(plan))) return;
+
+                // Early termination without moving means the map did not change, so replanning would not help.
+                if (bot.getRobotPosRow() == row && bot.getRobotPosCol() == col && bot.getRobotCurDir() == dir) return;
+            }
+        } finally {
+            if (incrementalPlanner != null) incrementalPlanner.detach();
         }
-        return false;
     }
 
     /**
      * Returns the number of cells explored in the grid.
      */
     private int calculateAreaExplored() {
-        int result = 0;
-        for (int r = 0; r < MapConstants.MAP_ROWS; r++) {
-            for (int c = 0; c < MapConstants.MAP_COLS; c++) {
-                if (exploredMap.getCell(r, c).getIsExplored()) {
-                    result++;
-                }
-            }
-        }
-        return result;
+        return exploredMap.countExplored();
     }
 
     /**
@@ -435,21 +399,7 @@ public class ExplorationAlgo {
      * Checks if the robot can calibrate at its current position given a direction.
      */
     private boolean canCalibrateOnTheSpot(DIRECTION botDir) {
-        int row = bot.getRobotPosRow();
-        int col = bot.getRobotPosCol();
-
-        switch (botDir) {
-            case NORTH:
-                return exploredMap.getIsObstacleOrWall(row + 2, col - 1) && exploredMap.getIsObstacleOrWall(row + 2, col) && exploredMap.getIsObstacleOrWall(row + 2, col + 1);
-            case EAST:
-                return exploredMap.getIsObstacleOrWall(row + 1, col + 2) && exploredMap.getIsObstacleOrWall(row, col + 2) && exploredMap.getIsObstacleOrWall(row - 1, col + 2);
-            case SOUTH:
-                return exploredMap.getIsObstacleOrWall(row - 2, col - 1) && exploredMap.getIsObstacleOrWall(row - 2, col) && exploredMap.getIsObstacleOrWall(row - 2, col + 1);
-            case WEST:
-                return exploredMap.getIsObstacleOrWall(row + 1, col - 2) && exploredMap.getIsObstacleOrWall(row, col - 2) && exploredMap.getIsObstacleOrWall(row - 1, col - 2);
-        }
-
-        return false;
+        return cspace.countBlockedAhead(bot.getRobotPosRow(), bot.getRobotPosCol(), botDir) == 3;
     }
 
     /**
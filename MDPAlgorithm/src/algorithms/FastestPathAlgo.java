@@ -2,15 +2,11 @@ package algorithms;
 
 import map.Cell;
 import map.Map;
-import map.MapConstants;
 import robot.Robot;
-import robot.RobotConstants;
 import robot.RobotConstants.DIRECTION;
 import robot.RobotConstants.MOVEMENT;
-
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Stack;
+import utils.CommMgr;
+import utils.Log;
 
 // @formatter:off
 /**
@@ -24,301 +20,149 @@ import java.util.Stack;
 // @formatter:on
 
 public class FastestPathAlgo {
-    private ArrayList<Cell> toVisit;        // array of Cells to be visited
-    private ArrayList<Cell> visited;        // array of visited Cells
-    private HashMap<Cell, Cell> parents;    // HashMap of Child --> Parent
+    private PathPlanner planner;            // planner used to compute the path
+    private final PathCompiler compiler = new PathCompiler();      // turns a path into movements
     private Cell current;                   // current Cell
-    private Cell[] neighbors;               // array of neighbors of current Cell
     private DIRECTION curDir;               // current direction of robot
-    private double[][] gCosts;              // array of real cost from START to [row][col] i.e. g(n)
     private Robot bot;
     private Map exploredMap;
     private final Map realMap;
-    private int loopCount;
     private boolean explorationMode;
 
-    //real fastest path
-    public FastestPathAlgo(Map exploredMap, Robot bot) {
+    //real fastest path with a shared, long-lived planner for exploredMap
+    public FastestPathAlgo(Map exploredMap, Robot bot, PathPlanner planner) {
         this.realMap = null;
-        initObject(exploredMap, bot);
+        initObject(exploredMap, bot, planner);
     }
 
-    //exploration mode fastest path
-    public FastestPathAlgo(Map exploredMap, Robot bot, Map realMap) {
+    //exploration mode fastest path with a shared, long-lived planner for exploredMap
+    public FastestPathAlgo(Map exploredMap, Robot bot, Map realMap, PathPlanner planner) {
         this.realMap = realMap;
         this.explorationMode = true;
-        initObject(exploredMap, bot);
+        initObject(exploredMap, bot, planner);
     }
 
     /**
      * Initialise the FastestPathAlgo object.
      */
-    private void initObject(Map map, Robot bot) {
+    private void initObject(Map map, Robot bot, PathPlanner planner) {
         this.bot = bot;
         this.exploredMap = map;
-        this.toVisit = new ArrayList<>();
-        this.visited = new ArrayList<>();
-        this.parents = new HashMap<>();
-        this.neighbors = new Cell[4];
+        this.planner = planner;
         this.current = map.getCell(bot.getRobotPosRow(), bot.getRobotPosCol()); //current position of robot when FastestPathAlgo is initialized
         this.curDir = bot.getRobotCurDir();
-        this.gCosts = new double[MapConstants.MAP_ROWS][MapConstants.MAP_COLS];
-
-        // Initialise gCosts array
-        for (int i = 0; i < MapConstants.MAP_ROWS; i++) {
-            for (int j = 0; j < MapConstants.MAP_COLS; j++) {
-                Cell cell = map.getCell(i, j);
-                if (!canBeVisited(cell)) {
-                    gCosts[i][j] = RobotConstants.INFINITE_COST;
-                } else {
-                    gCosts[i][j] = 0;
-                }
-            }
-        }
-        toVisit.add(current);
-
-        // Initialise starting point
-        gCosts[bot.getRobotPosRow()][bot.getRobotPosCol()] = 0;
-        this.loopCount = 0;
     }
 
     /**
-     * Returns true if the cell can be visited.
+     * Sets whether the path is searched over (row, col, DIRECTION) states with exact turn costs. Off by default.
+     * This changes the setting of the planner, which may be shared.
      */
-    private boolean canBeVisited(Cell c) {
-        return c.getIsExplored() && !c.getIsObstacle() && !c.getIsVirtualWall();
+    public void setHeadingAware(boolean headingAware) {
+        planner.setHeadingAware(headingAware);
     }
 
     /**
-     * Returns the Cell inside toVisit with the minimum g(n) + h(n).
+     * Sets whether the path minimises the predicted execution time on the real robot instead of grid steps. This
+     * changes the setting of the planner, which may be shared.
      */
-    private Cell minimumCostCell(int goalRow, int getCol) {
-        int size = toVisit.size();
-        double minCost = RobotConstants.INFINITE_COST;
-        Cell result = null;
-
-        for (int i = size - 1; i >= 0; i--) {
-            double gCost = gCosts[(toVisit.get(i).getRow())][(toVisit.get(i).getCol())];
-            double cost = gCost + costH(toVisit.get(i), goalRow, getCol);
-            if (cost < minCost) {
-                minCost = cost;
-                result = toVisit.get(i);
-            }
-        }
-
-        return result;
+    public void setCommandAware(boolean commandAware) {
+        planner.setCommandAware(commandAware);
     }
 
     /**
-     * Returns the heuristic cost i.e. h(n) from a given Cell to a given [goalRow, goalCol] in the maze.
+     * Sets the time in ms charged per instruction by command-aware planning and by the predicted execution time. This
+     * changes the setting of the planner, which may be shared.
      */
-    private double costH(Cell b, int goalRow, int goalCol) {
-        // Heuristic: The no. of moves will be equal to the difference in the row and column values.
-        double movementCost = (Math.abs(goalCol - b.getCol()) + Math.abs(goalRow - b.getRow())) * RobotConstants.MOVE_COST;
-
-        if (movementCost == 0) return 0;
-
-        // Heuristic: If b is not in the same row or column, one turn will be needed.
-        double turnCost = 0;
-        if (goalCol - b.getCol() != 0 || goalRow - b.getRow() != 0) {
-            turnCost = RobotConstants.TURN_COST;
-        }
-
-        return movementCost + turnCost;
+    public void setInstructionLatency(int instructionLatency) {
+        planner.setInstructionLatency(instructionLatency);
     }
 
     /**
-     * Returns the target direction of the bot from [botR, botC] to target Cell.
+     * Sets the distance fields used as an exact heuristic by heading-aware searches. This changes the setting of the
+     * planner, which may be shared.
      */
-    private DIRECTION getTargetDir(int botR, int botC, DIRECTION botDir, Cell target) {
-        if (botC - target.getCol() > 0) {
-            return DIRECTION.WEST;
-        } else if (target.getCol() - botC > 0) {
-            return DIRECTION.EAST;
-        } else {
-            if (botR - target.getRow() > 0) {
-                return DIRECTION.SOUTH;
-            } else if (target.getRow() - botR > 0) {
-                return DIRECTION.NORTH;
-            } else {
-                return botDir;
-            }
-        }
+    public void setDistanceFields(DistanceFieldCache distanceFields) {
+        planner.setDistanceFields(distanceFields);
     }
 
     /**
-     * Get the actual turning cost from one DIRECTION to another.
+     * Sets the cache of plans consulted before searching. This changes the setting of the planner, which may be shared.
      */
-    private double getTurnCost(DIRECTION a, DIRECTION b) {
-        int numOfTurn = Math.abs(a.ordinal() - b.ordinal());
-        if (numOfTurn > 2) {
-            numOfTurn = numOfTurn % 2;
-        }
-        return (numOfTurn * RobotConstants.TURN_COST);
+    public void setPathCache(PathCache pathCache) {
+        planner.setPathCache(pathCache);
     }
 
     /**
-     * Calculate the actual cost of moving from Cell a to Cell b (assuming both are neighbors).
+     * Find the fastest path from the robot's current position to [goalRow, goalCol].
      */
-    private double costG(Cell a, Cell b, DIRECTION aDir) {
-        double moveCost = RobotConstants.MOVE_COST; // one movement to neighbor
+    public String runFastestPath(int goalRow, int goalCol) {
+        if (Log.isInfoEnabled()) Log.info("Calculating fastest path from (" + current.getRow() + ", " + current.getCol() + ") to goal (" + goalRow + ", " + goalCol + ")...");
 
-        double turnCost;
-        DIRECTION targetDir = getTargetDir(a.getRow(), a.getCol(), aDir, b);
-        turnCost = getTurnCost(aDir, targetDir);
+        PathPlan plan = planner.plan(current.getRow(), current.getCol(), curDir, goalRow, goalCol);
+        if (plan == null) {
+            Log.info("Path not found!");
+            return null;
+        }
 
-        return moveCost + turnCost;
+        Log.info("Goal visited. Path found!");
+        return executePlan(plan);
     }
 
     /**
-     * Find the fastest path from the robot's current position to [goalRow, goalCol].
+     * Find a path from the robot's current position to [goalRow, goalCol] by the deadline (System.currentTimeMillis()),
+     * improving it towards the fastest path while time allows, and execute it.
      */
-    public String runFastestPath(int goalRow, int goalCol) {
-        System.out.println("Calculating fastest path from (" + current.getRow() + ", " + current.getCol() + ") to goal (" + goalRow + ", " + goalCol + ")...");
-
-        Cell startingCell = current; //changed
-        DIRECTION startingDir = curDir; //changed
-
-        Stack<Cell> path;
-        do {
-            loopCount++;
-            System.out.println("Im at line 185");
-            // Get cell with minimum cost from toVisit and assign it to current.
-            current = minimumCostCell(goalRow, goalCol);
-
-            // Point the robot in the direction of current from the previous cell.
-            if (parents.containsKey(current)) {
-                System.out.println("Im at line 191");
-                curDir = getTargetDir(parents.get(current).getRow(), parents.get(current).getCol(), curDir, current);
-            }
-
-            visited.add(current);       // add current to visited
-            toVisit.remove(current);    // remove current from toVisit
-            System.out.println("Im at line 197");
-            //Debugging
-            //System.out.println("Current is : " + current.getRow() + ", " + current.getCol());
-
-            if (visited.contains(exploredMap.getCell(goalRow, goalCol))) {
-                System.out.println("Im at line 202");
-                System.out.println("Goal visited. Path found!");
-                path = getPath(goalRow, goalCol);
-                printFastestPath(path);
-                return executePath(path, startingCell, startingDir, goalRow, goalCol); //changed //end of execution
-            }
-
-
-            // Setup neighbors of current cell. [Top, Bottom, Left, Right].
-            if (exploredMap.checkValidCoordinates(current.getRow() + 1, current.getCol())) {
-                neighbors[0] = exploredMap.getCell(current.getRow() + 1, current.getCol());
-                if (!canBeVisited(neighbors[0])) {
-                    neighbors[0] = null;
-                }
-            }
-            if (exploredMap.checkValidCoordinates(current.getRow() - 1, current.getCol())) {
-                neighbors[1] = exploredMap.getCell(current.getRow() - 1, current.getCol());
-                if (!canBeVisited(neighbors[1])) {
-                    neighbors[1] = null;
-                }
-            }
-            if (exploredMap.checkValidCoordinates(current.getRow(), current.getCol() - 1)) {
-                neighbors[2] = exploredMap.getCell(current.getRow(), current.getCol() - 1);
-                if (!canBeVisited(neighbors[2])) {
-                    neighbors[2] = null;
-                }
-            }
-            if (exploredMap.checkValidCoordinates(current.getRow(), current.getCol() + 1)) {
-                neighbors[3] = exploredMap.getCell(current.getRow(), current.getCol() + 1);
-                if (!canBeVisited(neighbors[3])) {
-                    neighbors[3] = null;
-                }
-            }
+    public String runFastestPath(int goalRow, int goalCol, long deadline) {
+        if (Log.isInfoEnabled()) Log.info("Calculating path from (" + current.getRow() + ", " + current.getCol() + ") to goal (" + goalRow + ", " + goalCol + ") within " + (deadline - System.currentTimeMillis()) + " ms...");
 
-            // Iterate through neighbors and update the g(n) values of each.
-            for (int i = 0; i < 4; i++) {
-                if (neighbors[i] != null) {
-                    if (visited.contains(neighbors[i])) {
-                        continue; }
-
-                    if (!(toVisit.contains(neighbors[i]))) {
-                        parents.put(neighbors[i], current);
-                        gCosts[neighbors[i].getRow()][neighbors[i].getCol()] = gCosts[current.getRow()][current.getCol()] + costG(current, neighbors[i], curDir);
-                        toVisit.add(neighbors[i]);
-                    } else {
-                        double currentGScore = gCosts[neighbors[i].getRow()][neighbors[i].getCol()];
-                        double newGScore = gCosts[current.getRow()][current.getCol()] + costG(current, neighbors[i], curDir);
-                        if (newGScore < currentGScore) {
-                            gCosts[neighbors[i].getRow()][neighbors[i].getCol()] = newGScore;
-                            parents.put(neighbors[i], current);
-                        }
-                    }
-                }
-            }
-        } while (!toVisit.isEmpty());
+        PathPlan plan = planner.planAnytime(current.getRow(), current.getCol(), curDir, goalRow, goalCol, deadline);
+        if (plan == null) {
+            Log.info("Path not found!");
+            return null;
+        }
 
-        System.out.println("Path not found!");
-        return null;
+        if (Log.isInfoEnabled()) Log.info(String.format("Goal visited. Path found within %.2f times the fastest path!", planner.getAnytimeBound()));
+        return executePlan(plan);
     }
 
     /**
-     * Generates path in reverse using the parents HashMap.
+     * Find the fastest path from the robot's current position to [goalRow, goalCol] through [waypointRow, waypointCol]
+     * in one search, and execute it as one movement string.
      */
-    private Stack<Cell> getPath(int goalRow, int goalCol) {
-        Stack<Cell> actualPath = new Stack<>();
-        Cell temp = exploredMap.getCell(goalRow, goalCol);
-
-        while (true) {
-            actualPath.push(temp);
-            temp = parents.get(temp);
-            if (temp == null) {
-                break;
-            }
+    public String runFastestPath(int waypointRow, int waypointCol, int goalRow, int goalCol) {
+        if (Log.isInfoEnabled()) Log.info("Calculating fastest path from (" + current.getRow() + ", " + current.getCol() + ") to goal (" + goalRow + ", " + goalCol + ") through waypoint (" + waypointRow + ", " + waypointCol + ")...");
+
+        PathPlan plan = planner.planViaWaypoint(current.getRow(), current.getCol(), curDir, waypointRow, waypointCol, goalRow, goalCol);
+        if (plan == null) {
+            Log.info("Path not found!");
+            return null;
         }
 
-        return actualPath;
+        Log.info("Goal visited. Path found!");
+        return executePlan(plan);
     }
 
     /**
-     * Executes the fastest path and returns a StringBuilder object with the path steps.
+     * Executes a plan computed by a PathPlanner. The robot must be at the start pose of the plan.
      */
-    private String executePath(Stack<Cell> path, Cell startingCell, DIRECTION startingDir, int goalRow, int goalCol) {  //changed
-        StringBuilder outputString = new StringBuilder();
-
-        Cell temp = path.pop();
-        DIRECTION targetDir;
-
-        ArrayList<MOVEMENT> movements = new ArrayList<>();
-
-        Robot tempBot = new Robot( startingCell.getRow(), startingCell.getCol(), false); //changed
-        tempBot.setRobotDir(startingDir); //changed
-        tempBot.setSensors(); //changed
-        tempBot.setSpeed(0);
-        while ((tempBot.getRobotPosRow() != goalRow) || (tempBot.getRobotPosCol() != goalCol)) {
-            if (tempBot.getRobotPosRow() == temp.getRow() && tempBot.getRobotPosCol() == temp.getCol()) {
-                temp = path.pop();
-            }
-
-            targetDir = getTargetDir(tempBot.getRobotPosRow(), tempBot.getRobotPosCol(), tempBot.getRobotCurDir(), temp);
-
-            MOVEMENT m;
-            if (tempBot.getRobotCurDir() != targetDir) {
-                m = getTargetMove(tempBot.getRobotCurDir(), targetDir);
-            } else {
-                m = MOVEMENT.FORWARD;
-            }
-
-            System.out.println("Movement " + MOVEMENT.print(m) + " from (" + tempBot.getRobotPosRow() + ", " + tempBot.getRobotPosCol() + ") to (" + temp.getRow() + ", " + temp.getCol() + ")");
-
-            tempBot.move(m);
-            movements.add(m);
-            outputString.append(MOVEMENT.print(m));
-        }
+    public String executePlan(PathPlan plan) {
+        printFastestPath(plan);
+        if (Log.isInfoEnabled()) Log.info("Predicted execution time on the real robot: " + CommandPlanner.getExecutionTime(plan, planner.getInstructionLatency()) + " ms\n");
+        compiler.compile(plan);
+        return executeMoves(); //end of execution
+    }
 
-        System.out.println("\n");
+    /**
+     * Executes the movements of the path last compiled by the compiler and returns them as a String, or "T" if the
+     * execution was terminated early by an obstacle in front of the robot.
+     */
+    private String executeMoves() {
         if (!bot.getRealBot()) {
-            for (MOVEMENT x : movements) {
+            for (int i = 0; i < compiler.getMoveCount(); i++) {
+                MOVEMENT x = compiler.getMove(i);
                 if (x == MOVEMENT.FORWARD) {
                     if (!canMoveForward()) {
-                        System.out.println("Early termination of fastest path execution.");
+                        Log.info("Early termination of fastest path execution.");
                         return "T";
                     }
                 }
@@ -334,53 +178,16 @@ public class FastestPathAlgo {
                 }
             }
         } else {
-            int fCount = 0;
-            for (MOVEMENT x : movements) {
+            // Consecutive forward moves are sent as one multi-forward instruction of up to MAX_FORWARD_STEPS cells.
+            for (int i = 0; i < compiler.getInstructionCount(); i++) {
+                MOVEMENT x = compiler.getInstructionMove(i);
                 if (x == MOVEMENT.FORWARD) {
-                    fCount++;
-                    if (fCount == 10) {
-                        bot.moveForwardMultiple(fCount);
-                        fCount = 0;
-                        exploredMap.repaint();
-                        // During exploration, use sensor data to update exploredMap.
-                        if (explorationMode) {
-                            bot.setSensors();
-                            bot.sense(this.exploredMap, this.realMap);
-                            this.exploredMap.repaint();
-                        }
-                    }
-                } else if (x == MOVEMENT.RIGHT || x == MOVEMENT.LEFT) {
-
-                    //if movement no longer forward
-                    //and there are values in the forward counter, then move multiple time
-
-                    if (fCount > 0) {
-                        bot.moveForwardMultiple(fCount);
-                        fCount = 0;
-                        exploredMap.repaint();
-                        // During exploration, use sensor data to update exploredMap.
-                        if (explorationMode) {
-                            bot.setSensors();
-                            bot.sense(this.exploredMap, this.realMap);
-                            this.exploredMap.repaint();
-                        }
-                    }
-
+                    bot.moveForwardMultiple(compiler.getInstructionSteps(i));
+                } else {
                     bot.move(x);
-                    exploredMap.repaint();
-                    // During exploration, use sensor data to update exploredMap.
-                    if (explorationMode) {
-                        bot.setSensors();
-                        bot.sense(this.exploredMap, this.realMap);
-                        this.exploredMap.repaint();
-                    }
                 }
-            }
-
-            //should be for the last few moments that have not been executed
-            if (fCount > 0) {
-                bot.moveForwardMultiple(fCount);
                 exploredMap.repaint();
+
                 // During exploration, use sensor data to update exploredMap.
                 if (explorationMode) {
                     bot.setSensors();
@@ -388,130 +195,53 @@ public class FastestPathAlgo {
                     this.exploredMap.repaint();
                 }
             }
+
+            // Outside exploration the sensor data acknowledging each instruction is not read, so drop it.
+            if (!explorationMode) CommMgr.getCommMgr().discardAcks();
         }
 
-        System.out.println("\nMovements: " + outputString.toString());
-        return outputString.toString();
+        String moves = compiler.getMoveString();
+        if (Log.isInfoEnabled()) Log.info("\nMovements: " + moves);
+        return moves;
     }
 
     /**
      * Returns true if the robot can move forward one cell with the current heading.
      */
     private boolean canMoveForward() {
-        int row = bot.getRobotPosRow();
-        int col = bot.getRobotPosCol();
-
-        switch (bot.getRobotCurDir()) {
-            case NORTH:
-                if (!exploredMap.isObstacleCell(row + 2, col - 1) && !exploredMap.isObstacleCell(row + 2, col) && !exploredMap.isObstacleCell(row + 2, col + 1)) {
-                    return true;
-                }
-                break;
-            case EAST:
-                if (!exploredMap.isObstacleCell(row + 1, col + 2) && !exploredMap.isObstacleCell(row, col + 2) && !exploredMap.isObstacleCell(row - 1, col + 2)) {
-                    return true;
-                }
-                break;
-            case SOUTH:
-                if (!exploredMap.isObstacleCell(row - 2, col - 1) && !exploredMap.isObstacleCell(row - 2, col) && !exploredMap.isObstacleCell(row - 2, col + 1)) {
-                    return true;
-                }
-                break;
-            case WEST:
-                if (!exploredMap.isObstacleCell(row + 1, col - 2) && !exploredMap.isObstacleCell(row, col - 2) && !exploredMap.isObstacleCell(row - 1, col - 2)) {
-                    return true;
-                }
-                break;
-        }
-
-        return false;
+        return exploredMap.getConfigurationSpace().countBlockedAhead(bot.getRobotPosRow(), bot.getRobotPosCol(), bot.getRobotCurDir()) == 0;
     }
 
     /**
-     * Returns the movement to execute to get from one direction to another.
+     * Prints the cells of a plan from start to goal.
      */
-    private MOVEMENT getTargetMove(DIRECTION a, DIRECTION b) {
-        switch (a) {
-            case NORTH:
-                switch (b) {
-                    case NORTH:
-                        return MOVEMENT.ERROR;
-                    case SOUTH:
-                        return MOVEMENT.LEFT;
-                    case WEST:
-                        return MOVEMENT.LEFT;
-                    case EAST:
-                        return MOVEMENT.RIGHT;
-                }
-                break;
-            case SOUTH:
-                switch (b) {
-                    case NORTH:
-                        return MOVEMENT.LEFT;
-                    case SOUTH:
-                        return MOVEMENT.ERROR;
-                    case WEST:
-                        return MOVEMENT.RIGHT;
-                    case EAST:
-                        return MOVEMENT.LEFT;
-                }
-                break;
-            case WEST:
-                switch (b) {
-                    case NORTH:
-                        return MOVEMENT.RIGHT;
-                    case SOUTH:
-                        return MOVEMENT.LEFT;
-                    case WEST:
-                        return MOVEMENT.ERROR;
-                    case EAST:
-                        return MOVEMENT.LEFT;
-                }
-                break;
-            case EAST:
-                switch (b) {
-                    case NORTH:
-                        return MOVEMENT.LEFT;
-                    case SOUTH:
-                        return MOVEMENT.RIGHT;
-                    case WEST:
-                        return MOVEMENT.LEFT;
-                    case EAST:
-                        return MOVEMENT.ERROR;
-                }
-        }
-        return MOVEMENT.ERROR;
-    }
+    private void printFastestPath(PathPlan plan) {
+        if (!Log.isInfoEnabled()) return;
 
-    /**
-     * Prints the fastest path from the Stack object.
-     */
-    private void printFastestPath(Stack<Cell> path) {
-        System.out.println("\nLooped " + loopCount + " times.");
-        System.out.println("The number of steps is: " + (path.size() - 1) + "\n");
-
-        Stack<Cell> pathForPrint = (Stack<Cell>) path.clone();
-        Cell temp;
-        System.out.println("Path:");
-        while (!pathForPrint.isEmpty()) {
-            temp = pathForPrint.pop();
-            if (!pathForPrint.isEmpty()) System.out.print("(" + temp.getRow() + ", " + temp.getCol() + ") --> ");
-            else System.out.print("(" + temp.getRow() + ", " + temp.getCol() + ")");
+        if (Log.isDebugEnabled()) Log.debug("\nLooped " + plan.getExpanded() + " times.");
+        Log.info("The number of steps is: " + plan.getSteps() + "\n");
+
+        StringBuilder sb = new StringBuilder("Path:\n");
+        for (int i = 0; i < plan.size(); i++) {
+            if (i > 0) sb.append(" --> ");
+            sb.append("(").append(plan.getRow(i)).append(", ").append(plan.getCol(i)).append(")");
         }
 
-        System.out.println("\n");
+        Log.info(sb.append("\n").toString());
     }
 
     /**
      * Prints all the current g(n) values for the cells.
      */
     public void printGCosts() {
-        for (int i = 0; i < MapConstants.MAP_ROWS; i++) {
-            for (int j = 0; j < MapConstants.MAP_COLS; j++) {
-                System.out.print(gCosts[MapConstants.MAP_ROWS - 1 - i][j]);
-                System.out.print(";");
+        if (!Log.isDebugEnabled()) return;
+
+        for (int i = 0; i < exploredMap.getRows(); i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < exploredMap.getCols(); j++) {
+                sb.append(planner.getGCost(exploredMap.getRows() - 1 - i, j)).append(";");
             }
-            System.out.println("\n");
+            Log.debug(sb.append("\n").toString());
         }
     }
 }
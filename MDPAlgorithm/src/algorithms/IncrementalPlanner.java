@@ -0,0 +1,320 @@
+package algorithms;
+
+import map.Map;
+import map.MapListener;
+import robot.RobotConstants;
+import robot.RobotConstants.DIRECTION;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// @formatter:off
+/**
+ * Incremental fastest path planner for a fixed goal, based on D* Lite.
+ *
+ * The search runs backwards from the goal over (row, col, DIRECTION) states with exact turn costs, so the cost field
+ * stays valid while the robot moves towards the goal. The planner listens to the map and, on the next call to plan(),
+ * repairs only the part of the cost field affected by the cells that changed since the last call.
+ *
+ * g(s)   = cost from s to GOAL
+ * rhs(s) = one-step lookahead value of g(s), i.e. min over successors s' of c(s, s') + g(s')
+ * h(s)   = heuristic cost from the robot's current pose to s, i.e. the exact cost on an obstacle-free grid
+ * km     = accumulated heuristic offset from earlier robot positions
+ */
+// @formatter:on
+
+public class IncrementalPlanner implements MapListener {
+    private static final int INFINITE = Integer.MAX_VALUE / 4;
+    private static final int[] ROW_INC = {1, 0, -1, 0};     // row increment of a forward move, by DIRECTION
+    private static final int[] COL_INC = {0, 1, 0, -1};     // col increment of a forward move, by DIRECTION
+
+    private final Map map;
+    private final int cols;
+    private final int goalCell;
+    private final int[] g;
+    private final int[] rhs;
+    private final IndexedMinHeap open;
+    private final BitSet changedCells;     // cells changed since the last call to plan()
+    private boolean initialised;
+    private int lastStart;
+    private int km;
+    private int expanded;
+
+    public IncrementalPlanner(Map map, int goalRow, int goalCol) {
+        int numStates = map.getCellCount() * 4;
+        this.map = map;
+        this.cols = map.getCols();
+        this.goalCell = goalRow * cols + goalCol;
+        this.g = new int[numStates];
+        this.rhs = new int[numStates];
+        this.open = new IndexedMinHeap(numStates);
+        this.changedCells = new BitSet(map.getCellCount());
+
+        Arrays.fill(g, INFINITE);
+        Arrays.fill(rhs, INFINITE);
+        map.addMapListener(this);
+    }
+
+    /**
+     * Stops listening to changes of the map. The planner must not be used afterwards.
+     */
+    public void detach() {
+        map.removeMapListener(this);
+    }
+
+    @Override
+    public void cellChanged(int row, int col) {
+        changedCells.set(row * cols + col);
+    }
+
+    /**
+     * Returns the fastest path from [startRow, startCol] facing startDir to the goal, or null if the goal cannot be
+     * reached. Only the cost field affected by map changes since the previous call is recomputed.
+     */
+    public PathPlan plan(int startRow, int startCol, DIRECTION startDir) {
+        int start = (startRow * cols + startCol) * 4 + startDir.ordinal();
+        expanded = 0;
+
+        if (!initialised) {
+            initialised = true;
+            lastStart = start;
+            changedCells.clear();
+            for (int dir = 0; dir < 4; dir++) {
+                rhs[goalCell * 4 + dir] = 0;
+                open.insert(goalCell * 4 + dir, calculateKey(goalCell * 4 + dir));
+            }
+        } else {
+            // The heuristic is relative to the robot pose, so keys computed earlier are offset by km.
+            km += costH(lastStart, start);
+            lastStart = start;
+            processChangedCells();
+        }
+
+        computeShortestPath(start);
+        if (g[start] >= INFINITE) return null;
+
+        return buildPlan(startRow, startCol, startDir, start);
+    }
+
+    /**
+     * Returns the number of states expanded in the last call to plan().
+     */
+    public int getExpanded() {
+        return expanded;
+    }
+
+    /**
+     * Updates the states whose outgoing edges lead into a changed cell.
+     */
+    private void processChangedCells() {
+        for (int cell = changedCells.nextSetBit(0); cell >= 0; cell = changedCells.nextSetBit(cell + 1)) {
+            for (int dir = 0; dir < 4; dir++) {
+                int pred = forwardPredecessor(cell * 4 + dir);
+                if (pred != -1 && !isGoal(pred)) {
+                    rhs[pred] = minSuccessorCost(pred);
+                    updateVertex(pred);
+                }
+            }
+        }
+        changedCells.clear();
+    }
+
+    private void computeShortestPath(int start) {
+        while (!open.isEmpty() && (open.getKey(open.peek()) < calculateKey(start) || rhs[start] != g[start])) {
+            expanded++;
+            int u = open.peek();
+            long kOld = open.getKey(u);
+            long kNew = calculateKey(u);
+
+            if (kOld < kNew) {
+                open.update(u, kNew);
+            } else if (g[u] > rhs[u]) {
+                g[u] = rhs[u];
+                open.remove(u);
+                updatePredecessors(u, INFINITE);
+            } else {
+                int gOld = g[u];
+                g[u] = INFINITE;
+                updatePredecessors(u, gOld);
+                if (!isGoal(u)) {
+                    rhs[u] = minSuccessorCost(u);
+                }
+                updateVertex(u);
+            }
+        }
+    }
+
+    /**
+     * Updates rhs(p) of every predecessor p of u after g(u) changed. If gOld is INFINITE, g(u) decreased and rhs(p)
+     * can only go down; otherwise g(u) increased from gOld and rhs(p) is recomputed if it depended on u.
+     */
+    private void updatePredecessors(int u, int gOld) {
+        int cell = u >> 2;
+        int dir = u & 3;
+        updatePredecessor(cell * 4 + ((dir + 1) & 3), u, RobotConstants.TURN_COST, gOld);
+        updatePredecessor(cell * 4 + ((dir + 3) & 3), u, RobotConstants.TURN_COST, gOld);
+
+        int pred = forwardPredecessor(u);
+        if (pred != -1) {
+            updatePredecessor(pred, u, forwardCost(cell), gOld);
+        }
+    }
+
+    private void updatePredecessor(int p, int u, int cost, int gOld) {
+        if (isGoal(p)) return;
+
+        if (gOld == INFINITE) {
+            rhs[p] = Math.min(rhs[p], cost + g[u]);
+        } else if (rhs[p] == cost + gOld) {
+            rhs[p] = minSuccessorCost(p);
+        }
+        updateVertex(p);
+    }
+
+    private void updateVertex(int u) {
+        if (g[u] != rhs[u]) {
+            if (open.contains(u)) {
+                open.update(u, calculateKey(u));
+            } else {
+                open.insert(u, calculateKey(u));
+            }
+        } else if (open.contains(u)) {
+            open.remove(u);
+        }
+    }
+
+    /**
+     * Returns min over successors s' of c(s, s') + g(s').
+     */
+    private int minSuccessorCost(int s) {
+        int cell = s >> 2;
+        int dir = s & 3;
+        int result = Math.min(RobotConstants.TURN_COST + g[cell * 4 + ((dir + 1) & 3)], RobotConstants.TURN_COST + g[cell * 4 + ((dir + 3) & 3)]);
+
+        int next = forwardSuccessor(s);
+        if (next != -1) {
+            result = Math.min(result, forwardCost(next >> 2) + g[next]);
+        }
+        return Math.min(result, INFINITE);
+    }
+
+    /**
+     * Returns the state reached by moving forward from s, or -1 if it is outside the map.
+     */
+    private int forwardSuccessor(int s) {
+        int cell = s >> 2;
+        int dir = s & 3;
+        int row = cell / cols + ROW_INC[dir];
+        int col = cell % cols + COL_INC[dir];
+        if (!map.checkValidCoordinates(row, col)) return -1;
+        return (row * cols + col) * 4 + dir;
+    }
+
+    /**
+     * Returns the state from which moving forward reaches s, or -1 if it is outside the map.
+     */
+    private int forwardPredecessor(int s) {
+        int cell = s >> 2;
+        int dir = s & 3;
+        int row = cell / cols - ROW_INC[dir];
+        int col = cell % cols - COL_INC[dir];
+        if (!map.checkValidCoordinates(row, col)) return -1;
+        return (row * cols + col) * 4 + dir;
+    }
+
+    /**
+     * Returns the cost of moving forward into a cell.
+     */
+    private int forwardCost(int cell) {
+        return map.isFreeCell(cell / cols, cell % cols) ? RobotConstants.MOVE_COST : INFINITE;
+    }
+
+    private boolean isGoal(int s) {
+        return (s >> 2) == goalCell;
+    }
+
+    /**
+     * Returns the heuristic cost from state a to state b: the moves plus the fewest turns needed to face every
+     * direction in which b lies and then the direction of b. This is the exact cost without obstacles, so it satisfies
+     * the triangle inequality that km relies on.
+     */
+    private int costH(int a, int b) {
+        int aDir = a & 3;
+        int bDir = b & 3;
+        int rowDiff = (b >> 2) / cols - (a >> 2) / cols;
+        int colDiff = (b >> 2) % cols - (a >> 2) % cols;
+        int movementCost = (Math.abs(rowDiff) + Math.abs(colDiff)) * RobotConstants.MOVE_COST;
+
+        int vertical = rowDiff > 0 ? DIRECTION.NORTH.ordinal() : (rowDiff < 0 ? DIRECTION.SOUTH.ordinal() : -1);
+        int horizontal = colDiff > 0 ? DIRECTION.EAST.ordinal() : (colDiff < 0 ? DIRECTION.WEST.ordinal() : -1);
+
+        int numOfTurn;
+        if (vertical == -1 && horizontal == -1) {
+            numOfTurn = getNumOfTurn(aDir, bDir);
+        } else if (vertical == -1 || horizontal == -1) {
+            int target = vertical == -1 ? horizontal : vertical;
+            numOfTurn = getNumOfTurn(aDir, target) + getNumOfTurn(target, bDir);
+        } else {
+            numOfTurn = 1 + Math.min(getNumOfTurn(aDir, vertical) + getNumOfTurn(horizontal, bDir), getNumOfTurn(aDir, horizontal) + getNumOfTurn(vertical, bDir));
+        }
+
+        return movementCost + numOfTurn * RobotConstants.TURN_COST;
+    }
+
+    /**
+     * Returns the number of 90 degree turns from one DIRECTION ordinal to another.
+     */
+    private int getNumOfTurn(int a, int b) {
+        int numOfTurn = (b - a) & 3;
+        return numOfTurn == 3 ? 1 : numOfTurn;
+    }
+
+    /**
+     * Returns the D* Lite key [min(g, rhs) + h + km, min(g, rhs)] of a state packed into a long.
+     */
+    private long calculateKey(int s) {
+        int m = Math.min(g[s], rhs[s]);
+        long k1 = m + costH(lastStart, s) + km;
+        return (k1 << 32) | m;
+    }
+
+    /**
+     * Follows the cheapest successors from start to the goal and packs the cells into a PathPlan.
+     */
+    private PathPlan buildPlan(int startRow, int startCol, DIRECTION startDir, int start) {
+        int[] cells = new int[64];
+        int length = 0;
+        cells[length++] = start >> 2;
+
+        int s = start;
+        for (int steps = 0; !isGoal(s) && steps < g.length; steps++) {
+            int cell = s >> 2;
+            int dir = s & 3;
+            int next = cell * 4 + ((dir + 1) & 3);
+            int best = RobotConstants.TURN_COST + g[next];
+
+            int left = cell * 4 + ((dir + 3) & 3);
+            if (RobotConstants.TURN_COST + g[left] < best) {
+                next = left;
+                best = RobotConstants.TURN_COST + g[left];
+            }
+
+            int forward = forwardSuccessor(s);
+            if (forward != -1 && forwardCost(forward >> 2) + g[forward] <= best) {
+                next = forward;
+                best = forwardCost(forward >> 2) + g[forward];
+            }
+
+            if (best >= INFINITE) return null;
+            if ((next >> 2) != cell) {
+                if (length == cells.length) cells = Arrays.copyOf(cells, length * 2);
+                cells[length++] = next >> 2;
+            }
+            s = next;
+        }
+
+        if (!isGoal(s)) return null;
+
+        return new PathPlan(startRow, startCol, startDir, goalCell / cols, goalCell % cols, cols, Arrays.copyOf(cells, length), g[start], expanded);
+    }
+}
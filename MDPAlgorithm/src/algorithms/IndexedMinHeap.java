@@ -0,0 +1,187 @@
+package algorithms;
+
+import java.util.Arrays;
+
+// @formatter:off
+/**
+ * Binary min-heap over integer indices in [0, capacity) with O(log n) insert, poll and decrease-key.
+ *
+ * Each index can be in the heap at most once. The position of every index inside the heap is tracked so that
+ * contains() is O(1) and a key can be lowered in place. Ties on the key are broken in favour of the index that was
+ * inserted last.
+ *
+ * The heap array itself grows on demand, since on large grids a search usually holds only a small fraction of all
+ * indices at once.
+ */
+// @formatter:on
+
+class IndexedMinHeap {
+    private int[] heap;                 // heap of indices
+    private final int[] pos;            // position of each index inside heap, -1 if absent
+    private final long[] keys;          // key of each index
+    private final long[] order;         // insertion order of each index, used for tie-breaking
+    private int size;
+    private long insertCount;
+
+    IndexedMinHeap(int capacity) {
+        this.heap = new int[Math.min(capacity, 1024)];
+        this.pos = new int[capacity];
+        this.keys = new long[capacity];
+        this.order = new long[capacity];
+        for (int i = 0; i < capacity; i++) {
+            pos[i] = -1;
+        }
+    }
+
+    /**
+     * Returns true if there are no indices in the heap.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of indices in the heap.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the index at position i of the heap, for 0 <= i < size(). Positions are in heap order, not key order.
+     */
+    int get(int i) {
+        return heap[i];
+    }
+
+    /**
+     * Returns true if the index is currently in the heap.
+     */
+    boolean contains(int index) {
+        return pos[index] != -1;
+    }
+
+    /**
+     * Returns the key of an index in the heap.
+     */
+    long getKey(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Inserts an index that is not yet in the heap.
+     */
+    void insert(int index, long key) {
+        keys[index] = key;
+        order[index] = insertCount++;
+        if (size == heap.length) heap = Arrays.copyOf(heap, Math.min(size * 2, pos.length));
+        heap[size] = index;
+        pos[index] = size;
+        size++;
+        siftUp(size - 1);
+    }
+
+    /**
+     * Lowers the key of an index already in the heap. Larger keys are ignored.
+     */
+    void decreaseKey(int index, long key) {
+        if (key >= keys[index]) return;
+        keys[index] = key;
+        siftUp(pos[index]);
+    }
+
+    /**
+     * Changes the key of an index already in the heap to a lower or higher value.
+     */
+    void update(int index, long key) {
+        long oldKey = keys[index];
+        keys[index] = key;
+        if (key < oldKey) {
+            siftUp(pos[index]);
+        } else {
+            siftDown(pos[index]);
+        }
+    }
+
+    /**
+     * Returns the index with the minimum key without removing it.
+     */
+    int peek() {
+        return heap[0];
+    }
+
+    /**
+     * Removes an index from anywhere in the heap.
+     */
+    void remove(int index) {
+        int i = pos[index];
+        size--;
+        if (i < size) {
+            int moved = heap[size];
+            heap[i] = moved;
+            pos[moved] = i;
+            siftDown(i);
+            if (pos[moved] == i) siftUp(i);
+        }
+        pos[index] = -1;
+    }
+
+    /**
+     * Removes and returns the index with the minimum key.
+     */
+    int poll() {
+        int top = heap[0];
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            pos[heap[0]] = 0;
+            siftDown(0);
+        }
+        pos[top] = -1;
+        return top;
+    }
+
+    /**
+     * Removes all indices from the heap.
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            pos[heap[i]] = -1;
+        }
+        size = 0;
+        insertCount = 0;
+    }
+
+    private boolean less(int a, int b) {
+        if (keys[a] != keys[b]) return keys[a] < keys[b];
+        return order[a] > order[b];
+    }
+
+    private void siftUp(int i) {
+        int index = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(index, heap[parent])) break;
+            heap[i] = heap[parent];
+            pos[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = index;
+        pos[index] = i;
+    }
+
+    private void siftDown(int i) {
+        int index = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && less(heap[child + 1], heap[child])) child++;
+            if (!less(heap[child], index)) break;
+            heap[i] = heap[child];
+            pos[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = index;
+        pos[index] = i;
+    }
+}
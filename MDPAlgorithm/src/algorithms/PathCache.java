@@ -0,0 +1,141 @@
+package algorithms;
+
+import java.util.LinkedHashMap;
+
+// @formatter:off
+/**
+ * Bounded LRU cache of PathPlans, placed in front of a PathPlanner with PathPlanner.setPathCache().
+ *
+ * A plan is keyed on the query (start state, waypoint, goal), the settings of the planner that computed it and the
+ * state hash of the map. A plan is therefore only returned for a map in exactly the state it was computed for, and
+ * repeating a query on an unchanged map costs one hash lookup instead of a search. The least recently used plan is
+ * evicted once the cache holds capacity plans.
+ *
+ * The cache can be shared by planners of different maps, and is safe to use from several threads.
+ */
+// @formatter:on
+
+public class PathCache {
+    static final PathPlan NO_PATH = new PathPlan(0, 0, null, 0, 0, 1, new int[0], 0, 0);     // result of a query without a path
+
+    private final int capacity;
+    private final LinkedHashMap<Key, PathPlan> plans;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public PathCache(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+
+        this.capacity = capacity;
+        this.plans = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the cached plan for a query, NO_PATH if it is cached that no path was found, or null if the query is not
+     * cached.
+     */
+    synchronized PathPlan get(Key key) {
+        PathPlan plan = plans.get(key);
+        if (plan != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return plan;
+    }
+
+    /**
+     * Caches the result of a query, which is null if no path was found, evicting the least recently used plan if the
+     * cache is full.
+     */
+    synchronized void put(Key key, PathPlan plan) {
+        plans.put(key, plan != null ? plan : NO_PATH);
+        if (plans.size() > capacity) {
+            plans.remove(plans.keySet().iterator().next());
+            evictions++;
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the no. of plans in the cache.
+     */
+    public synchronized int size() {
+        return plans.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the fraction of lookups that were hits, or 0 if there were none.
+     */
+    public synchronized double getHitRate() {
+        return hits + misses == 0 ? 0 : hits / (double) (hits + misses);
+    }
+
+    /**
+     * Removes all plans and resets the counters.
+     */
+    public synchronized void clear() {
+        plans.clear();
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("PathCache: %d hits, %d misses (%.1f%% hit rate), %d evictions, %d/%d plans", hits, misses, getHitRate() * 100.0, evictions, plans.size(), capacity);
+    }
+
+    /**
+     * Identifies a query: the start state (cell * 4 + direction), the waypoint cell or -1, the goal cell, the settings
+     * of the planner and the state hash of the map.
+     */
+    static final class Key {
+        private final int start;
+        private final int waypoint;
+        private final int goal;
+        private final int mode;
+        private final long stateHash;
+
+        Key(int start, int waypoint, int goal, int mode, long stateHash) {
+            this.start = start;
+            this.waypoint = waypoint;
+            this.goal = goal;
+            this.mode = mode;
+            this.stateHash = stateHash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+
+            Key other = (Key) o;
+            return start == other.start && waypoint == other.waypoint && goal == other.goal && mode == other.mode && stateHash == other.stateHash;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Long.hashCode(stateHash);
+            result = 31 * result + start;
+            result = 31 * result + waypoint;
+            result = 31 * result + goal;
+            return 31 * result + mode;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package algorithms;
+
+import robot.RobotConstants;
+import robot.RobotConstants.DIRECTION;
+import robot.RobotConstants.MOVEMENT;
+
+import java.util.Arrays;
+
+// @formatter:off
+/**
+ * Compiles a path of cells into the movements and instructions that drive the robot along it, without moving a Robot.
+ *
+ * Each step to the next cell becomes, in this order:
+ *
+ * RIGHT / LEFT     if the next cell is 90 degrees to the right / left of the current heading
+ * LEFT, LEFT       if the next cell is behind the robot
+ * FORWARD          one cell
+ *
+ * The instructions group consecutive FORWARD movements into runs of up to MAX_FORWARD_STEPS cells, as sent to the real
+ * robot by Robot.moveForwardMultiple(); each turn is an instruction of its own.
+ *
+ * A compiler keeps its buffers between calls and only grows them when a longer path comes along, so compiling a path
+ * allocates nothing. The results are valid until the next call to compile().
+ */
+// @formatter:on
+
+public class PathCompiler {
+    private static final MOVEMENT[] MOVEMENTS = MOVEMENT.values();
+    private static final DIRECTION[] DIRECTIONS = DIRECTION.values();
+
+    private byte[] moves = new byte[64];            // MOVEMENT ordinals
+    private int moveCount;
+    private int[] instructions = new int[32];       // (steps << 3) | MOVEMENT ordinal
+    private int instructionCount;
+    private DIRECTION endDir;
+
+    /**
+     * Compiles the path of a plan, starting with the robot facing the start direction of the plan.
+     */
+    public void compile(PathPlan plan) {
+        compile(plan.getCells(), plan.size(), plan.getCols(), plan.getStartDir());
+    }
+
+    /**
+     * Compiles the first length cells of a path, given as cell indices (row * cols + col) starting with the robot's
+     * cell, for a robot facing startDir. Consecutive cells must be adjacent.
+     */
+    public void compile(int[] cells, int length, int cols, DIRECTION startDir) {
+        moveCount = 0;
+        instructionCount = 0;
+
+        int dir = startDir.ordinal();
+        int run = 0;        // forward moves not yet added as an instruction
+        for (int i = 1; i < length; i++) {
+            int diff = cells[i] - cells[i - 1];
+            int nextDir;
+            if (diff == cols) {
+                nextDir = 0;
+            } else if (diff == 1) {
+                nextDir = 1;
+            } else if (diff == -cols) {
+                nextDir = 2;
+            } else if (diff == -1) {
+                nextDir = 3;
+            } else {
+                throw new IllegalArgumentException("Cells " + cells[i - 1] + " and " + cells[i] + " are not adjacent");
+            }
+
+            int turn = (nextDir - dir) & 3;
+            if (turn != 0) {
+                if (run > 0) addInstruction(MOVEMENT.FORWARD, run);
+                run = 0;
+
+                MOVEMENT m = turn == 1 ? MOVEMENT.RIGHT : MOVEMENT.LEFT;
+                for (int k = turn == 2 ? 2 : 1; k > 0; k--) {
+                    addMove(m);
+                    addInstruction(m, 1);
+                }
+                dir = nextDir;
+            }
+
+            addMove(MOVEMENT.FORWARD);
+            if (++run == RobotConstants.MAX_FORWARD_STEPS) {
+                addInstruction(MOVEMENT.FORWARD, run);
+                run = 0;
+            }
+        }
+        if (run > 0) addInstruction(MOVEMENT.FORWARD, run);
+
+        endDir = DIRECTIONS[dir];
+    }
+
+    /**
+     * Returns the no. of movements of the last compiled path.
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public MOVEMENT getMove(int i) {
+        return MOVEMENTS[moves[i]];
+    }
+
+    /**
+     * Returns the no. of instructions of the last compiled path.
+     */
+    public int getInstructionCount() {
+        return instructionCount;
+    }
+
+    /**
+     * Returns the movement of the i-th instruction: FORWARD for a run of forward moves, or a turn.
+     */
+    public MOVEMENT getInstructionMove(int i) {
+        return MOVEMENTS[instructions[i] & 7];
+    }
+
+    /**
+     * Returns the no. of cells of the i-th instruction if it is a FORWARD run, or 1 for a turn.
+     */
+    public int getInstructionSteps(int i) {
+        return instructions[i] >>> 3;
+    }
+
+    /**
+     * Returns the direction of the robot at the end of the last compiled path.
+     */
+    public DIRECTION getEndDir() {
+        return endDir;
+    }
+
+    /**
+     * Appends the movements of the last compiled path, one MOVEMENT.print() character each, e.g. "wwdww".
+     */
+    public StringBuilder appendMoves(StringBuilder sb) {
+        for (int i = 0; i < moveCount; i++) {
+            sb.append(MOVEMENT.print(MOVEMENTS[moves[i]]));
+        }
+        return sb;
+    }
+
+    /**
+     * Appends the instructions of the last compiled path as sent to the real robot: a turn or a single forward move as
+     * its MOVEMENT.print() character, and a run of n > 1 forward moves as the character (64 + n), e.g. "Bdw".
+     */
+    public StringBuilder appendInstructions(StringBuilder sb) {
+        for (int i = 0; i < instructionCount; i++) {
+            MOVEMENT m = getInstructionMove(i);
+            int steps = getInstructionSteps(i);
+            sb.append(m == MOVEMENT.FORWARD && steps > 1 ? (char) (64 + steps) : MOVEMENT.print(m));
+        }
+        return sb;
+    }
+
+    /**
+     * Returns the movements of the last compiled path as a string, see appendMoves().
+     */
+    public String getMoveString() {
+        return appendMoves(new StringBuilder(moveCount)).toString();
+    }
+
+    private void addMove(MOVEMENT m) {
+        if (moveCount == moves.length) moves = Arrays.copyOf(moves, moveCount * 2);
+        moves[moveCount++] = (byte) m.ordinal();
+    }
+
+    private void addInstruction(MOVEMENT m, int steps) {
+        if (instructionCount == instructions.length) instructions = Arrays.copyOf(instructions, instructionCount * 2);
+        instructions[instructionCount++] = (steps << 3) | m.ordinal();
+    }
+}
@@ -0,0 +1,98 @@
+package algorithms;
+
+import robot.RobotConstants.DIRECTION;
+
+/**
+ * Result of a PathPlanner query. Holds the cells of the path from the start pose to the goal without executing it.
+ */
+
+public class PathPlan {
+    private final int startRow;
+    private final int startCol;
+    private final DIRECTION startDir;
+    private final int goalRow;
+    private final int goalCol;
+    private final int cols;
+    private final int[] cells;      // cell indices (row * cols + col) from start to goal, both inclusive
+    private final int cost;         // g(n) of the goal
+    private final int expanded;     // no. of states expanded to find the path
+
+    PathPlan(int startRow, int startCol, DIRECTION startDir, int goalRow, int goalCol, int cols, int[] cells, int cost, int expanded) {
+        this.startRow = startRow;
+        this.startCol = startCol;
+        this.startDir = startDir;
+        this.goalRow = goalRow;
+        this.goalCol = goalCol;
+        this.cols = cols;
+        this.cells = cells;
+        this.cost = cost;
+        this.expanded = expanded;
+    }
+
+    public int getStartRow() {
+        return startRow;
+    }
+
+    public int getStartCol() {
+        return startCol;
+    }
+
+    public DIRECTION getStartDir() {
+        return startDir;
+    }
+
+    public int getGoalRow() {
+        return goalRow;
+    }
+
+    public int getGoalCol() {
+        return goalCol;
+    }
+
+    /**
+     * Returns the number of cells on the path, including the start and goal cells.
+     */
+    public int size() {
+        return cells.length;
+    }
+
+    /**
+     * Returns the row of the i-th cell on the path.
+     */
+    public int getRow(int i) {
+        return cells[i] / cols;
+    }
+
+    /**
+     * Returns the column of the i-th cell on the path.
+     */
+    public int getCol(int i) {
+        return cells[i] % cols;
+    }
+
+    /**
+     * Returns the cell indices (row * cols + col) of the path. The returned array must not be modified.
+     */
+    int[] getCells() {
+        return cells;
+    }
+
+    int getCols() {
+        return cols;
+    }
+
+    /**
+     * Returns the number of forward steps on the path.
+     */
+    public int getSteps() {
+        return cells.length - 1;
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    public int getExpanded() {
+        return expanded;
+    }
+}
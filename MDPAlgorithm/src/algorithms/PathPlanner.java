@@ -0,0 +1,224 @@
+package algorithms;
+
+import map.MapReader;
+import robot.RobotConstants;
+import robot.RobotConstants.DIRECTION;
+
+import java.util.BitSet;
+
+/**
+ * Long-lived path planner for one map. All search buffers are allocated once and reused by every query, and a query
+ * only computes a PathPlan without moving the robot. Use FastestPathAlgo.executePlan() to execute the result.
+ *
+ * A planner only reads its map, so it can be created for a MapSnapshot and run on another thread while the Map it was
+ * taken from keeps changing.
+ */
+
+public class PathPlanner {
+    private final MapReader map;
+    private final AStarSearch search;
+    private DistanceFieldCache distanceFields;
+    private CommandPlanner commandPlanner;      // set if queries minimise the predicted execution time
+    private int instructionLatency = RobotConstants.INSTRUCTION_LATENCY;
+    private PathCache pathCache;
+    private AnytimePlanner anytimePlanner;      // created on the first call to planAnytime()
+
+    public PathPlanner(MapReader map) {
+        this.map = map;
+        this.search = new AStarSearch(map.getRows(), map.getCols());
+    }
+
+    /**
+     * Sets whether the following queries search over (row, col, DIRECTION) states with exact turn costs.
+     */
+    public void setHeadingAware(boolean headingAware) {
+        search.setHeadingAware(headingAware);
+    }
+
+    public boolean isHeadingAware() {
+        return search.isHeadingAware();
+    }
+
+    /**
+     * Sets whether plan() and planViaWaypoint() minimise the predicted execution time on the real robot, counting
+     * instructions and turns, instead of grid steps. The cost of the returned plans is then a time in ms.
+     */
+    public void setCommandAware(boolean commandAware) {
+        if (!commandAware) {
+            commandPlanner = null;
+        } else if (commandPlanner == null) {
+            commandPlanner = new CommandPlanner(map);
+            commandPlanner.setInstructionLatency(instructionLatency);
+        }
+    }
+
+    /**
+     * Sets the time in ms charged per instruction by command-aware queries, INSTRUCTION_LATENCY by default.
+     */
+    public void setInstructionLatency(int instructionLatency) {
+        if (commandPlanner != null) commandPlanner.setInstructionLatency(instructionLatency);
+        this.instructionLatency = instructionLatency;
+    }
+
+    public int getInstructionLatency() {
+        return instructionLatency;
+    }
+
+    public boolean isCommandAware() {
+        return commandPlanner != null;
+    }
+
+    /**
+     * Sets a cache of distance fields for this map. Heading-aware queries to one of its targets then use the distance
+     * field as an exact heuristic. Pass null to stop using it.
+     */
+    public void setDistanceFields(DistanceFieldCache distanceFields) {
+        this.distanceFields = distanceFields;
+    }
+
+    /**
+     * Sets a cache of plans. plan() and planViaWaypoint() then return the cached plan of a query that was already
+     * answered for the current state of the map and the current settings. Pass null to stop using it.
+     */
+    public void setPathCache(PathCache pathCache) {
+        this.pathCache = pathCache;
+    }
+
+    public PathCache getPathCache() {
+        return pathCache;
+    }
+
+    /**
+     * Returns the fastest path from [startRow, startCol] facing startDir to [goalRow, goalCol], or null if the goal
+     * cannot be reached.
+     */
+    public PathPlan plan(int startRow, int startCol, DIRECTION startDir, int goalRow, int goalCol) {
+        PathCache.Key key = null;
+        if (pathCache != null) {
+            key = getCacheKey(startRow, startCol, startDir, -1, goalRow * map.getCols() + goalCol);
+            PathPlan cached = pathCache.get(key);
+            if (cached != null) return cached == PathCache.NO_PATH ? null : cached;
+        }
+
+        PathPlan plan = computePlan(startRow, startCol, startDir, goalRow, goalCol);
+        if (key != null) pathCache.put(key, plan);
+        return plan;
+    }
+
+    private PathPlan computePlan(int startRow, int startCol, DIRECTION startDir, int goalRow, int goalCol) {
+        if (commandPlanner != null) return commandPlanner.plan(startRow, startCol, startDir, goalRow, goalCol);
+
+        int[] goalField = null;
+        if (distanceFields != null && search.isHeadingAware()) {
+            goalField = distanceFields.getField(goalRow, goalCol);
+        }
+
+        if (!search.search(map, startRow, startCol, startDir, goalRow, goalCol, goalField)) return null;
+
+        return buildPlan(startRow, startCol, startDir);
+    }
+
+    /**
+     * Returns a path from [startRow, startCol] facing startDir to [goalRow, goalCol] within a deadline in ms (as given
+     * by System.currentTimeMillis()), or null if the goal cannot be reached. Costs are heading-aware. The path is
+     * improved towards the fastest path until the deadline, and its cost is at most getAnytimeBound() times the
+     * optimum. See AnytimePlanner.
+     */
+    public PathPlan planAnytime(int startRow, int startCol, DIRECTION startDir, int goalRow, int goalCol, long deadline) {
+        if (anytimePlanner == null) anytimePlanner = new AnytimePlanner(map);
+        return anytimePlanner.plan(startRow, startCol, startDir, goalRow, goalCol, deadline);
+    }
+
+    /**
+     * Returns the suboptimality bound of the last planAnytime() result, 1 if it is the fastest path.
+     */
+    public double getAnytimeBound() {
+        return anytimePlanner != null ? anytimePlanner.getBound() : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the fastest path from [startRow, startCol] facing startDir to [goalRow, goalCol] that passes
+     * [waypointRow, waypointCol], or null if there is none. Both legs are planned in one search over (row, col,
+     * DIRECTION) states, so the heading at the waypoint is the best one for the whole route.
+     */
+    public PathPlan planViaWaypoint(int startRow, int startCol, DIRECTION startDir, int waypointRow, int waypointCol, int goalRow, int goalCol) {
+        PathCache.Key key = null;
+        if (pathCache != null) {
+            key = getCacheKey(startRow, startCol, startDir, waypointRow * map.getCols() + waypointCol, goalRow * map.getCols() + goalCol);
+            PathPlan cached = pathCache.get(key);
+            if (cached != null) return cached == PathCache.NO_PATH ? null : cached;
+        }
+
+        PathPlan plan = computePlanViaWaypoint(startRow, startCol, startDir, waypointRow, waypointCol, goalRow, goalCol);
+        if (key != null) pathCache.put(key, plan);
+        return plan;
+    }
+
+    private PathPlan computePlanViaWaypoint(int startRow, int startCol, DIRECTION startDir, int waypointRow, int waypointCol, int goalRow, int goalCol) {
+        if (commandPlanner != null) return commandPlanner.planViaWaypoint(startRow, startCol, startDir, waypointRow, waypointCol, goalRow, goalCol);
+
+        int[] goalField = distanceFields != null ? distanceFields.getField(goalRow, goalCol) : null;
+
+        if (!search.searchViaWaypoint(map, startRow, startCol, startDir, waypointRow, waypointCol, goalRow, goalCol, goalField)) return null;
+
+        return buildPlan(startRow, startCol, startDir);
+    }
+
+    /**
+     * Returns the path to the nearest reachable cell in targets, where targets holds cell indices
+     * (row * MAP_COLS + col), or null if none of them can be reached. Distances include exact turn costs. The goal of
+     * the returned plan is the chosen target.
+     */
+    public PathPlan planToNearest(int startRow, int startCol, DIRECTION startDir, BitSet targets) {
+        if (!search.searchNearest(map, startRow, startCol, startDir, targets)) return null;
+
+        return buildPlan(startRow, startCol, startDir);
+    }
+
+    /**
+     * Returns the cache key of a query with the current settings of this planner and the current state of the map.
+     */
+    private PathCache.Key getCacheKey(int startRow, int startCol, DIRECTION startDir, int waypoint, int goal) {
+        int mode = (search.isHeadingAware() ? 1 : 0) | (commandPlanner != null ? 2 | (instructionLatency << 3) : 0) | (distanceFields != null ? 4 : 0);
+        return new PathCache.Key((startRow * map.getCols() + startCol) * 4 + startDir.ordinal(), waypoint, goal, mode, map.getStateHash());
+    }
+
+    /**
+     * Builds a PathPlan from the parent table of the last successful search.
+     */
+    private PathPlan buildPlan(int startRow, int startCol, DIRECTION startDir) {
+        // Count the cells on the path, skipping states where the robot only turned on the spot.
+        int length = 0;
+        int lastCell = AStarSearch.NO_PARENT;
+        for (int s = search.getGoalState(); s != AStarSearch.NO_PARENT; s = search.getParent(s)) {
+            if (search.getCell(s) != lastCell) {
+                lastCell = search.getCell(s);
+                length++;
+            }
+        }
+
+        int[] cells = new int[length];
+        lastCell = AStarSearch.NO_PARENT;
+        for (int s = search.getGoalState(); s != AStarSearch.NO_PARENT; s = search.getParent(s)) {
+            if (search.getCell(s) != lastCell) {
+                lastCell = search.getCell(s);
+                cells[--length] = lastCell;
+            }
+        }
+
+        int goal = search.getCell(search.getGoalState());
+        return new PathPlan(startRow, startCol, startDir, goal / map.getCols(), goal % map.getCols(), map.getCols(), cells, search.getGoalCost(), search.getLoopCount());
+    }
+
+    /**
+     * Returns g(n) of [row, col] in the last query that ran a search, i.e. was not answered from the path cache, or
+     * INFINITE_COST if it was not reached.
+     */
+    int getGCost(int row, int col) {
+        return search.getGCost(row, col);
+    }
+
+    public MapReader getMap() {
+        return map;
+    }
+}
@@ -0,0 +1,236 @@
+package map;
+
+import java.util.Arrays;
+
+// @formatter:off
+/**
+ * Compact grid state stored as bitplanes.
+ *
+ * Every cell is identified by its index (row * cols + col), which is also its bit position in each plane:
+ *
+ * explored    = 1 if the cell has been explored
+ * obstacle    = 1 if the cell is an obstacle
+ * virtualWall = 1 if the robot's centre cannot be on the cell, i.e. it is next to an obstacle or on the border
+ *
+ * Each plane holds (rows * cols + 63) / 64 words, so a 20 x 15 arena takes 15 words in total. Counting explored cells
+ * runs a word at a time, and testing a 3 x 3 block for unexplored cells takes one masked read per row.
+ *
+ * The words are grouped in chunks of CHUNK_WORDS. snapshot() returns a read-only grid that shares all chunks with
+ * this grid; the first write to a shared chunk afterwards copies that chunk only, so taking a snapshot costs O(no. of
+ * chunks) and later writes copy at most one chunk per plane.
+ */
+// @formatter:on
+
+public class BitGrid {
+    private static final int CHUNK_SHIFT = 4;
+    private static final int CHUNK_WORDS = 1 << CHUNK_SHIFT;   // no. of words in a chunk
+
+    private final int rows;
+    private final int cols;
+    private final int size;
+    private final int wordCount;
+    private final long[][] explored;
+    private final long[][] obstacle;
+    private final long[][] virtualWall;
+    private final boolean[] sharedExplored;     // true if the chunk is shared with a snapshot
+    private final boolean[] sharedObstacle;
+    private final boolean[] sharedVirtualWall;
+    private final boolean readOnly;
+
+    public BitGrid(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.size = rows * cols;
+        this.wordCount = (size + 63) >>> 6;
+        this.readOnly = false;
+
+        int chunks = (wordCount + CHUNK_WORDS - 1) >>> CHUNK_SHIFT;
+        this.explored = new long[chunks][CHUNK_WORDS];
+        this.obstacle = new long[chunks][CHUNK_WORDS];
+        this.virtualWall = new long[chunks][CHUNK_WORDS];
+        this.sharedExplored = new boolean[chunks];
+        this.sharedObstacle = new boolean[chunks];
+        this.sharedVirtualWall = new boolean[chunks];
+    }
+
+    /**
+     * Creates a read-only grid that shares the chunks of other.
+     */
+    private BitGrid(BitGrid other, boolean readOnly) {
+        this.rows = other.rows;
+        this.cols = other.cols;
+        this.size = other.size;
+        this.wordCount = other.wordCount;
+        this.readOnly = readOnly;
+        this.explored = other.explored.clone();
+        this.obstacle = other.obstacle.clone();
+        this.virtualWall = other.virtualWall.clone();
+        this.sharedExplored = new boolean[explored.length];
+        this.sharedObstacle = new boolean[obstacle.length];
+        this.sharedVirtualWall = new boolean[virtualWall.length];
+    }
+
+    /**
+     * Returns a read-only copy of the current state of this grid. Must be called by the thread that writes to this
+     * grid; the snapshot itself can then be read by any thread.
+     */
+    public BitGrid snapshot() {
+        if (readOnly) return this;
+
+        Arrays.fill(sharedExplored, true);
+        Arrays.fill(sharedObstacle, true);
+        Arrays.fill(sharedVirtualWall, true);
+        return new BitGrid(this, true);
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Returns the no. of cells in the grid.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the no. of words in each plane.
+     */
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    public boolean isExplored(int index) {
+        return get(explored, index);
+    }
+
+    public void setExplored(int index, boolean val) {
+        set(explored, sharedExplored, index, val);
+    }
+
+    public boolean isObstacle(int index) {
+        return get(obstacle, index);
+    }
+
+    public void setObstacle(int index, boolean val) {
+        set(obstacle, sharedObstacle, index, val);
+    }
+
+    public boolean isVirtualWall(int index) {
+        return get(virtualWall, index);
+    }
+
+    /**
+     * Sets or clears the virtual wall flag of a cell. Cells on the border of the arena always stay virtual walls.
+     */
+    public void setVirtualWall(int index, boolean val) {
+        if (!val && isBorder(index)) return;
+
+        set(virtualWall, sharedVirtualWall, index, val);
+    }
+
+    /**
+     * Returns true if the robot's centre can be on the cell, i.e. it is explored, not an obstacle and not a virtual
+     * wall.
+     */
+    public boolean isFree(int index) {
+        int w = index >>> 6;
+        return ((word(explored, w) & ~word(obstacle, w) & ~word(virtualWall, w)) & (1L << index)) != 0;
+    }
+
+    /**
+     * Returns the word of the explored plane at word index w. Bits beyond the last cell are 0.
+     */
+    public long getExploredWord(int w) {
+        return word(explored, w);
+    }
+
+    public long getObstacleWord(int w) {
+        return word(obstacle, w);
+    }
+
+    /**
+     * Returns the no. of explored cells.
+     */
+    public int countExplored() {
+        int result = 0;
+        for (long[] chunk : explored) {
+            for (long word : chunk) {
+                result += Long.bitCount(word);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if any cell of the 3 x 3 block centred on [row, col] is unexplored. Cells outside the grid are
+     * ignored. Each row of the block is tested with one masked read.
+     */
+    public boolean hasUnexploredInBlock(int row, int col) {
+        int first = Math.max(col - 1, 0);
+        int count = Math.min(col + 1, cols - 1) - first + 1;
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, rows - 1); r++) {
+            if (getBits(explored, r * cols + first, count) != (1L << count) - 1) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns count (fewer than 64) consecutive bits of a plane starting at index, with the bit of index as bit 0.
+     */
+    private long getBits(long[][] plane, int index, int count) {
+        int w = index >>> 6;
+        int shift = index & 63;
+        long bits = word(plane, w) >>> shift;
+        if (shift + count > 64 && w + 1 < wordCount) {
+            bits |= word(plane, w + 1) << (64 - shift);
+        }
+        return bits & ((1L << count) - 1);
+    }
+
+    private boolean isBorder(int index) {
+        int row = index / cols;
+        int col = index % cols;
+        return row == 0 || col == 0 || row == rows - 1 || col == cols - 1;
+    }
+
+    /**
+     * Returns a chunk of a plane that can be written to, copying it first if it is shared with a snapshot.
+     */
+    private long[] writable(long[][] plane, boolean[] shared, int chunk) {
+        if (readOnly) throw new IllegalStateException("BitGrid snapshot is read-only");
+
+        if (shared[chunk]) {
+            plane[chunk] = plane[chunk].clone();
+            shared[chunk] = false;
+        }
+        return plane[chunk];
+    }
+
+    private static long word(long[][] plane, int w) {
+        return plane[w >>> CHUNK_SHIFT][w & (CHUNK_WORDS - 1)];
+    }
+
+    private static boolean get(long[][] plane, int index) {
+        return (word(plane, index >>> 6) & (1L << index)) != 0;
+    }
+
+    private void set(long[][] plane, boolean[] shared, int index, boolean val) {
+        int w = index >>> 6;
+        long[] chunk = writable(plane, shared, w >>> CHUNK_SHIFT);
+        if (val) {
+            chunk[w & (CHUNK_WORDS - 1)] |= 1L << index;
+        } else {
+            chunk[w & (CHUNK_WORDS - 1)] &= ~(1L << index);
+        }
+    }
+}
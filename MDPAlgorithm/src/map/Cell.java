@@ -1,22 +1,24 @@
 package map;
 
 /**
- * Represents each cell in the map grid.
+ * Represents each cell in the map grid. A Cell is a read-only view of one cell of a BitGrid; its state is stored in
+ * the grid's bitplanes and changed through Map, which keeps the virtual walls, frontier and listeners up to date.
  *
  * @author Suyash Lakhotia
  */
 
 public class Cell {
+    private final BitGrid grid;
     private final int row;
     private final int col;
-    private boolean isObstacle;
-    private boolean isVirtualWall;
-    private boolean isExplored;
+    private final int index;
     //private boolean isPermanent;
 
-    public Cell(int row, int col) {
+    Cell(BitGrid grid, int row, int col) {
+        this.grid = grid;
         this.row = row;
         this.col = col;
+        this.index = row * grid.getCols() + col;
     }
 
     public int getRow() {
@@ -27,34 +29,16 @@ public class Cell {
         return this.col;
     }
 
-    public void setIsObstacle(boolean val) {
-        this.isObstacle = val;
-    }
-
     public boolean getIsObstacle() {
-        return this.isObstacle;
-    }
-
-    public void setVirtualWall(boolean val) {
-        if (val) {
-            this.isVirtualWall = true;
-        } else {
-            if (row != 0 && row != MapConstants.MAP_ROWS - 1 && col != 0 && col != MapConstants.MAP_COLS - 1) {
-                this.isVirtualWall = false;
-            }
-        }
+        return grid.isObstacle(index);
     }
 
     public boolean getIsVirtualWall() {
-        return this.isVirtualWall;
-    }
-
-    public void setIsExplored(boolean val) {
-        this.isExplored = val;
+        return grid.isVirtualWall(index);
     }
 
     public boolean getIsExplored() {
-        return this.isExplored;
+        return grid.isExplored(index);
     }
 
 //    public boolean getIsPermanent(){
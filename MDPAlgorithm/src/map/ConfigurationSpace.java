@@ -0,0 +1,169 @@
+package map;
+
+import robot.RobotConstants.DIRECTION;
+
+// @formatter:off
+/**
+ * Configuration space of the 3x3 robot, kept up to date as cells change.
+ *
+ * For every cell, the following reference counts are kept:
+ *
+ * blockObstacles = no. of obstacles in the 3x3 block centred on the cell
+ * rowObstacles   = no. of obstacles in the 1x3 row segment centred on the cell
+ * colObstacles   = no. of obstacles in the 3x1 col segment centred on the cell
+ * rowUnexplored  = no. of unexplored cells in the 1x3 row segment centred on the cell
+ * colUnexplored  = no. of unexplored cells in the 3x1 col segment centred on the cell
+ *
+ * Changing one cell updates at most 9 counts per plane. The virtual wall flag of a cell in the BitGrid is derived from
+ * its count (border || blockObstacles > 0), so removing an obstacle only clears the virtual walls that no other
+ * obstacle still needs.
+ */
+// @formatter:on
+
+public class ConfigurationSpace {
+    private static final int[] ROW_INC = {1, 0, -1, 0};     // row increment of a forward move, by DIRECTION
+    private static final int[] COL_INC = {0, 1, 0, -1};     // col increment of a forward move, by DIRECTION
+
+    private final BitGrid bits;
+    private final int rows;
+    private final int cols;
+    private final byte[] blockObstacles;
+    private final byte[] rowObstacles;
+    private final byte[] colObstacles;
+    private final byte[] rowUnexplored;
+    private final byte[] colUnexplored;
+
+    /**
+     * Creates the configuration space of a grid and derives its virtual walls from its current obstacles.
+     */
+    public ConfigurationSpace(BitGrid bits) {
+        this.bits = bits;
+        this.rows = bits.getRows();
+        this.cols = bits.getCols();
+        this.blockObstacles = new byte[bits.getSize()];
+        this.rowObstacles = new byte[bits.getSize()];
+        this.colObstacles = new byte[bits.getSize()];
+        this.rowUnexplored = new byte[bits.getSize()];
+        this.colUnexplored = new byte[bits.getSize()];
+        rebuild();
+    }
+
+    /**
+     * Recomputes all counts and virtual walls from the obstacle and explored planes, e.g. after the BitGrid was
+     * changed directly.
+     */
+    public void rebuild() {
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int index = row * cols + col;
+                int block = 0;
+                for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, rows - 1); r++) {
+                    for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, cols - 1); c++) {
+                        if (bits.isObstacle(r * cols + c)) block++;
+                    }
+                }
+                blockObstacles[index] = (byte) block;
+                rowObstacles[index] = 0;
+                colObstacles[index] = 0;
+                rowUnexplored[index] = 0;
+                colUnexplored[index] = 0;
+                for (int i = -1; i <= 1; i++) {
+                    if (col + i >= 0 && col + i < cols) {
+                        if (bits.isObstacle(index + i)) rowObstacles[index]++;
+                        if (!bits.isExplored(index + i)) rowUnexplored[index]++;
+                    }
+                    if (row + i >= 0 && row + i < rows) {
+                        if (bits.isObstacle(index + i * cols)) colObstacles[index]++;
+                        if (!bits.isExplored(index + i * cols)) colUnexplored[index]++;
+                    }
+                }
+                updateVirtualWall(row, col);
+            }
+        }
+    }
+
+    /**
+     * Sets or clears the obstacle flag of a cell and updates the counts and virtual walls around it.
+     */
+    public void setObstacle(int row, int col, boolean obstacle) {
+        int index = row * cols + col;
+        if (bits.isObstacle(index) == obstacle) return;
+
+        bits.setObstacle(index, obstacle);
+        int delta = obstacle ? 1 : -1;
+        addToSegments(rowObstacles, colObstacles, row, col, delta);
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, rows - 1); r++) {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, cols - 1); c++) {
+                blockObstacles[r * cols + c] += delta;
+                updateVirtualWall(r, c);
+            }
+        }
+    }
+
+    /**
+     * Sets the explored flag of a cell and updates the counts around it.
+     */
+    public void setExplored(int row, int col, boolean explored) {
+        int index = row * cols + col;
+        if (bits.isExplored(index) == explored) return;
+
+        bits.setExplored(index, explored);
+        addToSegments(rowUnexplored, colUnexplored, row, col, explored ? -1 : 1);
+    }
+
+    /**
+     * Returns true if the robot's footprint fits on the grid with its centre at [row, col] and covers no obstacle.
+     */
+    public boolean canStand(int row, int col) {
+        return row >= 0 && col >= 0 && row < rows && col < cols && !bits.isVirtualWall(row * cols + col);
+    }
+
+    /**
+     * Returns true if the robot centred at [row, col] can move one cell in direction dir: it can stand on the next
+     * cell, and the cells that will be in the middle row (or col) of its footprint there are explored.
+     */
+    public boolean canAdvance(int row, int col, DIRECTION dir) {
+        int d = dir.ordinal();
+        int nextRow = row + ROW_INC[d];
+        int nextCol = col + COL_INC[d];
+        if (!canStand(nextRow, nextCol)) return false;
+
+        byte[] unexplored = ROW_INC[d] != 0 ? rowUnexplored : colUnexplored;
+        return unexplored[nextRow * cols + nextCol] == 0;
+    }
+
+    /**
+     * Returns the no. of cells directly in front of the robot centred at [row, col] facing dir, i.e. the three cells
+     * two cells away from its centre, that are obstacles or outside the grid.
+     */
+    public int countBlockedAhead(int row, int col, DIRECTION dir) {
+        int d = dir.ordinal();
+        int edgeRow = row + 2 * ROW_INC[d];
+        int edgeCol = col + 2 * COL_INC[d];
+        if (edgeRow < 0 || edgeCol < 0 || edgeRow >= rows || edgeCol >= cols) return 3;
+
+        int index = edgeRow * cols + edgeCol;
+        if (ROW_INC[d] != 0) {
+            return rowObstacles[index] + (edgeCol == 0 ? 1 : 0) + (edgeCol == cols - 1 ? 1 : 0);
+        }
+        return colObstacles[index] + (edgeRow == 0 ? 1 : 0) + (edgeRow == rows - 1 ? 1 : 0);
+    }
+
+    /**
+     * Adds delta to the row segment counts of the cells in the same row and the col segment counts of the cells in
+     * the same col that are at most one cell away from [row, col].
+     */
+    private void addToSegments(byte[] rowCounts, byte[] colCounts, int row, int col, int delta) {
+        for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, cols - 1); c++) {
+            rowCounts[row * cols + c] += delta;
+        }
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, rows - 1); r++) {
+            colCounts[r * cols + col] += delta;
+        }
+    }
+
+    private void updateVirtualWall(int row, int col) {
+        boolean border = row == 0 || col == 0 || row == rows - 1 || col == cols - 1;
+        bits.setVirtualWall(row * cols + col, border || blockObstacles[row * cols + col] > 0);
+    }
+}
@@ -31,6 +31,7 @@ class GraphicsConstants {
 
     public static final int CELL_SIZE = 30;
 
-    public static final int MAP_H = 600;
     public static final int MAP_X_OFFSET = 120;
+
+    public static final int FRAME_INTERVAL_MS = 1000 / 30;     // min. time between two repaints of the map
 }
@@ -1,89 +1,334 @@
 package map;
 
 import robot.Robot;
-import robot.RobotConstants;
 
-import javax.swing.*;
-import java.awt.*;
+import java.util.BitSet;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
- * Represents the entire map grid for the arena.
+ * Represents the entire map grid for the arena. The model has no Swing dependency; the simulator displays it through
+ * a MapView that observes it.
+ *
+ * The no. of explored cells and the set of frontier cells are kept up to date on every change made through the Map,
+ * so that exploration can query them in O(1) instead of scanning the grid.
+ *
+ * Caches of data derived from the map can check that it is still valid in O(1): the version changes on every cell
+ * change, and the state hash is a Zobrist hash of the explored and obstacle flags of all cells, which is the same for
+ * any two maps of the same size in the same state.
+ *
+ * The Map is changed by one thread at a time, e.g. the exploration worker. Other threads, such as a background planner
+ * or the Swing view, read a MapSnapshot instead: snapshot() takes one on the changing thread, and repaint() publishes
+ * the latest one through getPublishedSnapshot().
  *
  * @author Suyash Lakhotia
  */
 
-public class Map extends JPanel {
-    private final Cell[][] grid;
+public class Map implements MapReader {
+    private final int rows;
+    private final int cols;
+    private final BitGrid bits;
+    private final ConfigurationSpace cspace;
+    private final Cell[] cells;         // views of the cells of bits, created on first use
     private final Robot bot;
+    private final CopyOnWriteArrayList<MapListener> listeners = new CopyOnWriteArrayList<>();     // added and removed from any thread
+    private long version;       // incremented on every cell change
+    private long stateHash;     // XOR of the Zobrist keys of the explored and obstacle flags that are set
+    private int exploredCount;
+    private final BitSet frontier;      // free explored cells with an unexplored cell in their 3x3 block
+    private int frontierCount;
+    private MapSnapshot snapshot;       // last snapshot taken, reused while the version is unchanged
+    private volatile MapSnapshot published;
 
     /**
-     * Initialises a Map object with a grid of Cell objects.
+     * Initialises a Map object of the default arena size (MAP_ROWS x MAP_COLS).
      */
     public Map(Robot bot) {
+        this(bot, MapConstants.MAP_ROWS, MapConstants.MAP_COLS);
+    }
+
+    /**
+     * Initialises a Map object with a grid of rows x cols cells backed by a BitGrid. The goal zone is the 3x3
+     * block in the corner opposite the start zone.
+     */
+    public Map(Robot bot, int rows, int cols) {
+        if (rows < 6 || cols < 6) throw new IllegalArgumentException("Arena must be at least 6x6: " + rows + "x" + cols);
+
         this.bot = bot;
+        this.rows = rows;
+        this.cols = cols;
 
-        grid = new Cell[MapConstants.MAP_ROWS][MapConstants.MAP_COLS];
-        for (int row = 0; row < grid.length; row++) {
-            for (int col = 0; col < grid[0].length; col++) {
-                grid[row][col] = new Cell(row, col);
+        bits = new BitGrid(rows, cols);
+        frontier = new BitSet(rows * cols);
+        cells = new Cell[rows * cols];
+        stateHash = zobristKey(-rows, 0) ^ zobristKey(-cols, 1);      // keys no cell uses, so sizes hash apart
 
-                // Set the virtual walls of the arena
-                if (row == 0 || col == 0 || row == MapConstants.MAP_ROWS - 1 || col == MapConstants.MAP_COLS - 1) {
-                    grid[row][col].setVirtualWall(true);
-                }
-            }
+        // Sets the virtual walls of the arena
+        cspace = new ConfigurationSpace(bits);
+        published = snapshot();
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Returns the no. of cells in the map.
+     */
+    @Override
+    public int getCellCount() {
+        return rows * cols;
+    }
+
+    /**
+     * Returns the row no. of the centre of the goal zone.
+     */
+    @Override
+    public int getGoalRow() {
+        return rows - 2;
+    }
+
+    /**
+     * Returns the col no. of the centre of the goal zone.
+     */
+    @Override
+    public int getGoalCol() {
+        return cols - 2;
+    }
+
+    /**
+     * Returns the bitplanes holding the state of the map. Changes made directly to them do not notify listeners or
+     * update the explored count and frontier.
+     */
+    BitGrid getBits() {
+        return bits;
+    }
+
+    /**
+     * Returns the configuration space of the robot on this map, which answers whether the robot can stand on or move
+     * to a cell in O(1).
+     */
+    public ConfigurationSpace getConfigurationSpace() {
+        return cspace;
+    }
+
+    /**
+     * Returns the no. of explored cells.
+     */
+    public int countExplored() {
+        return exploredCount;
+    }
+
+    /**
+     * Returns the no. of unexplored cells.
+     */
+    public int countUnexplored() {
+        return rows * cols - exploredCount;
+    }
+
+    /**
+     * Returns the no. of frontier cells, i.e. cells the robot's centre can be on (see isFreeCell()) with an unexplored
+     * cell in the 3x3 block centred on them, so the robot can observe that cell from there.
+     */
+    public int countFrontier() {
+        return frontierCount;
+    }
+
+    /**
+     * Returns a copy of the set of frontier cells (row * cols + col).
+     */
+    public BitSet getFrontierCells() {
+        return (BitSet) frontier.clone();
+    }
+
+    /**
+     * Registers a listener to be notified of cell changes. Listeners can be added and removed from any thread, and
+     * are notified on the thread that changes the map.
+     */
+    public void addMapListener(MapListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeMapListener(MapListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns a counter that changes whenever a cell of the map changes, so that derived data can detect that it is
+     * stale.
+     */
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns a hash of the explored and obstacle state of all cells, which determines the virtual walls too. It is
+     * updated on every change in O(1), so it can be used to validate or key caches of derived data, e.g. paths or map
+     * descriptors. Unlike the version, it returns to its old value when a change is undone.
+     */
+    @Override
+    public long getStateHash() {
+        return stateHash;
+    }
+
+    /**
+     * Returns the Zobrist key of the explored (plane 0) or obstacle (plane 1) flag of a cell. The keys are derived from
+     * their position with the SplitMix64 mixing function instead of being stored in a table, so all maps use the same
+     * keys.
+     */
+    private static long zobristKey(int index, int plane) {
+        long z = ((long) index << 1 | plane) * 0x9E3779B97F4A7C15L + 0x2545F4914F6CDD1DL;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Returns an immutable copy of the current state of the cells. Must be called on the thread that changes the map;
+     * the snapshot can then be handed to any thread.
+     */
+    public MapSnapshot snapshot() {
+        if (snapshot == null || snapshot.getVersion() != version) snapshot = new MapSnapshot(bits, version, stateHash);
+        return snapshot;
+    }
+
+    /**
+     * Returns the snapshot published by the last call to repaint(). Can be called from any thread.
+     */
+    public MapSnapshot getPublishedSnapshot() {
+        return published;
+    }
+
+    private void fireCellChanged(int row, int col) {
+        version++;
+        updateFrontier(row, col);
+        for (MapListener listener : listeners) {
+            listener.cellChanged(row, col);
         }
     }
 
     /**
      * Returns true if the row and column values are valid.
      */
+    @Override
     public boolean checkValidCoordinates(int row, int col) {
-        return row >= 0 && col >= 0 && row < MapConstants.MAP_ROWS && col < MapConstants.MAP_COLS;
+        return row >= 0 && col >= 0 && row < rows && col < cols;
     }
 
     /**
      * Returns true if the row and column values are in the start zone.
      */
-    private boolean inStartZone(int row, int col) {
+    boolean inStartZone(int row, int col) {
         return row >= 0 && row <= 2 && col >= 0 && col <= 2;
     }
 
     /**
      * Returns true if the row and column values are in the goal zone.
      */
-    private boolean inGoalZone(int row, int col) {
-        return (row <= MapConstants.GOAL_ROW + 1 && row >= MapConstants.GOAL_ROW - 1 && col <= MapConstants.GOAL_COL + 1 && col >= MapConstants.GOAL_COL - 1);
+    boolean inGoalZone(int row, int col) {
+        return (row <= getGoalRow() + 1 && row >= getGoalRow() - 1 && col <= getGoalCol() + 1 && col >= getGoalCol() - 1);
     }
 
     /**
      * Returns a particular cell in the grid.
      */
     public Cell getCell(int row, int col) {
-        return grid[row][col];
+        int index = row * cols + col;
+        if (cells[index] == null) cells[index] = new Cell(bits, row, col);
+        return cells[index];
+    }
+
+    /**
+     * Returns true if a cell has been explored.
+     */
+    @Override
+    public boolean isExploredCell(int row, int col) {
+        return bits.isExplored(row * cols + col);
     }
 
     /**
      * Returns true if a cell is an obstacle.
      */
+    @Override
     public boolean isObstacleCell(int row, int col) {
-        return grid[row][col].getIsObstacle();
+        return bits.isObstacle(row * cols + col);
     }
 
     /**
      * Returns true if a cell is a virtual wall.
      */
+    @Override
     public boolean isVirtualWallCell(int row, int col) {
-        return grid[row][col].getIsVirtualWall();
+        return bits.isVirtualWall(row * cols + col);
+    }
+
+    /**
+     * Returns true if the robot's centre can be on a cell, i.e. it is explored, not an obstacle and not a virtual
+     * wall.
+     */
+    @Override
+    public boolean isFreeCell(int row, int col) {
+        return bits.isFree(row * cols + col);
+    }
+
+    @Override
+    public int getWordCount() {
+        return bits.getWordCount();
+    }
+
+    @Override
+    public long getExploredWord(int w) {
+        return bits.getExploredWord(w);
+    }
+
+    @Override
+    public long getObstacleWord(int w) {
+        return bits.getObstacleWord(w);
+    }
+
+    /**
+     * Sets the explored state of a cell.
+     */
+    public void setIsExplored(int row, int col, boolean explored) {
+        int index = row * cols + col;
+        if (bits.isExplored(index) == explored) return;
+
+        cspace.setExplored(row, col, explored);
+        exploredCount += explored ? 1 : -1;
+        stateHash ^= zobristKey(index, 0);
+        fireCellChanged(row, col);
+    }
+
+    /**
+     * Updates the frontier membership of the cells of the 3x3 block centred on a changed cell, which are the only
+     * cells whose membership can depend on it.
+     */
+    private void updateFrontier(int row, int col) {
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, rows - 1); r++) {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, cols - 1); c++) {
+                int index = r * cols + c;
+                boolean member = bits.isFree(index) && bits.hasUnexploredInBlock(r, c);
+                if (member != frontier.get(index)) {
+                    frontier.set(index, member);
+                    frontierCount += member ? 1 : -1;
+                }
+            }
+        }
     }
 
     /**
      * Sets all cells in the grid to an explored state.
      */
     public void setAllExplored() {
-        for (int row = 0; row < grid.length; row++) {
-            for (int col = 0; col < grid[0].length; col++) {
-                grid[row][col].setIsExplored(true);
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                setIsExplored(row, col, true);
             }
         }
     }
@@ -92,139 +337,69 @@ public class Map extends JPanel {
      * Sets all cells in the grid to an unexplored state except for the START & GOAL zone.
      */
     public void setAllUnexplored() {
-        for (int row = 0; row < grid.length; row++) {
-            for (int col = 0; col < grid[0].length; col++) {
-                if (inStartZone(row, col) || inGoalZone(row, col)) {
-                    grid[row][col].setIsExplored(true);
-                } else {
-                    grid[row][col].setIsExplored(false);
-                }
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                setIsExplored(row, col, inStartZone(row, col) || inGoalZone(row, col));
             }
         }
     }
 
     /**
-     * Sets a cell as an obstacle and the surrounding cells as virtual walls or resets the cell and surrounding
-     * virtual walls.
+     * Sets a cell as an obstacle and the surrounding cells as virtual walls or resets the cell and the surrounding
+     * virtual walls that no other obstacle needs.
      */
     public void setObstacleCell(int row, int col, boolean obstacle) {
         if (obstacle && (inStartZone(row, col) || inGoalZone(row, col)))
             return;
 
-        grid[row][col].setIsObstacle(obstacle);
-
-        if (row >= 1) {
-            grid[row - 1][col].setVirtualWall(obstacle);            // bottom cell
-
-            if (col < MapConstants.MAP_COLS - 1) {
-                grid[row - 1][col + 1].setVirtualWall(obstacle);    // bottom-right cell
-            }
-
-            if (col >= 1) {
-                grid[row - 1][col - 1].setVirtualWall(obstacle);    // bottom-left cell
-            }
-        }
-
-        if (row < MapConstants.MAP_ROWS - 1) {
-            grid[row + 1][col].setVirtualWall(obstacle);            // top cell
+        int before = getBlockState(row, col);
 
-            if (col < MapConstants.MAP_COLS - 1) {
-                grid[row + 1][col + 1].setVirtualWall(obstacle);    // top-right cell
-            }
+        if (bits.isObstacle(row * cols + col) != obstacle) stateHash ^= zobristKey(row * cols + col, 1);
+        cspace.setObstacle(row, col, obstacle);
 
-            if (col >= 1) {
-                grid[row + 1][col - 1].setVirtualWall(obstacle);    // top-left cell
+        int changed = before ^ getBlockState(row, col);
+        for (int r = row - 1; r <= row + 1; r++) {
+            for (int c = col - 1; c <= col + 1; c++) {
+                int bit = ((r - row + 1) * 3 + (c - col + 1)) * 2;
+                if ((changed & (3 << bit)) != 0) fireCellChanged(r, c);
             }
         }
-
-        if (col >= 1) {
-            grid[row][col - 1].setVirtualWall(obstacle);            // left cell
-        }
-
-        if (col < MapConstants.MAP_COLS - 1) {
-            grid[row][col + 1].setVirtualWall(obstacle);            // right cell
-        }
     }
 
     /**
-     * Returns true if the given cell is out of bounds or an obstacle.
+     * Returns the obstacle and virtual wall flags of the 3x3 block centred on [row, col], two bits per cell.
      */
-    public boolean getIsObstacleOrWall(int row, int col) {
-        return !checkValidCoordinates(row, col) || getCell(row, col).getIsObstacle();
+    private int getBlockState(int row, int col) {
+        int state = 0;
+        for (int r = row - 1; r <= row + 1; r++) {
+            for (int c = col - 1; c <= col + 1; c++) {
+                if (!checkValidCoordinates(r, c)) continue;
+
+                int bit = ((r - row + 1) * 3 + (c - col + 1)) * 2;
+                int index = r * cols + c;
+                if (bits.isObstacle(index)) state |= 1 << bit;
+                if (bits.isVirtualWall(index)) state |= 2 << bit;
+            }
+        }
+        return state;
     }
 
     /**
-     * Overrides JComponent's paintComponent() method. It creates a two-dimensional array of _DisplayCell objects
-     * to store the current map state. Then, it paints square cells for the grid with the appropriate colors as
-     * well as the robot on-screen.
+     * Asks the views of the map to redraw it, e.g. after the robot has moved. Changed cells are reported to listeners
+     * as they change. Publishes a snapshot of the current state for the views to draw from, so this must be called on
+     * the thread that changes the map.
      */
-    public void paintComponent(Graphics g) {
-        // Create a two-dimensional array of _DisplayCell objects for rendering.
-        _DisplayCell[][] _mapCells = new _DisplayCell[MapConstants.MAP_ROWS][MapConstants.MAP_COLS];
-        for (int mapRow = 0; mapRow < MapConstants.MAP_ROWS; mapRow++) {
-            for (int mapCol = 0; mapCol < MapConstants.MAP_COLS; mapCol++) {
-                _mapCells[mapRow][mapCol] = new _DisplayCell(mapCol * GraphicsConstants.CELL_SIZE, mapRow * GraphicsConstants.CELL_SIZE, GraphicsConstants.CELL_SIZE);
-            }
-        }
-
-        // Paint the cells with the appropriate colors.
-        for (int mapRow = 0; mapRow < MapConstants.MAP_ROWS; mapRow++) {
-            for (int mapCol = 0; mapCol < MapConstants.MAP_COLS; mapCol++) {
-                Color cellColor;
-
-                if (inStartZone(mapRow, mapCol))
-                    cellColor = GraphicsConstants.C_START;
-                else if (inGoalZone(mapRow, mapCol))
-                    cellColor = GraphicsConstants.C_GOAL;
-                else {
-                    if (!grid[mapRow][mapCol].getIsExplored())
-                        cellColor = GraphicsConstants.C_UNEXPLORED;
-                    else if (grid[mapRow][mapCol].getIsObstacle())
-                        cellColor = GraphicsConstants.C_OBSTACLE;
-                    else
-                        cellColor = GraphicsConstants.C_FREE;
-                }
-
-                g.setColor(cellColor);
-                g.fillRect(_mapCells[mapRow][mapCol].cellX + GraphicsConstants.MAP_X_OFFSET, _mapCells[mapRow][mapCol].cellY, _mapCells[mapRow][mapCol].cellSize, _mapCells[mapRow][mapCol].cellSize);
-
-            }
-        }
-
-        // Paint the robot on-screen.
-        g.setColor(GraphicsConstants.C_ROBOT);
-        int r = bot.getRobotPosRow();
-        int c = bot.getRobotPosCol();
-        g.fillOval((c - 1) * GraphicsConstants.CELL_SIZE + GraphicsConstants.ROBOT_X_OFFSET + GraphicsConstants.MAP_X_OFFSET, GraphicsConstants.MAP_H - (r * GraphicsConstants.CELL_SIZE + GraphicsConstants.ROBOT_Y_OFFSET), GraphicsConstants.ROBOT_W, GraphicsConstants.ROBOT_H);
-
-        // Paint the robot's direction indicator on-screen.
-        g.setColor(GraphicsConstants.C_ROBOT_DIR);
-        RobotConstants.DIRECTION d = bot.getRobotCurDir();
-        switch (d) {
-            case NORTH:
-                g.fillOval(c * GraphicsConstants.CELL_SIZE + 10 + GraphicsConstants.MAP_X_OFFSET, GraphicsConstants.MAP_H - r * GraphicsConstants.CELL_SIZE - 15, GraphicsConstants.ROBOT_DIR_W, GraphicsConstants.ROBOT_DIR_H);
-                break;
-            case EAST:
-                g.fillOval(c * GraphicsConstants.CELL_SIZE + 35 + GraphicsConstants.MAP_X_OFFSET, GraphicsConstants.MAP_H - r * GraphicsConstants.CELL_SIZE + 10, GraphicsConstants.ROBOT_DIR_W, GraphicsConstants.ROBOT_DIR_H);
-                break;
-            case SOUTH:
-                g.fillOval(c * GraphicsConstants.CELL_SIZE + 10 + GraphicsConstants.MAP_X_OFFSET, GraphicsConstants.MAP_H - r * GraphicsConstants.CELL_SIZE + 35, GraphicsConstants.ROBOT_DIR_W, GraphicsConstants.ROBOT_DIR_H);
-                break;
-            case WEST:
-                g.fillOval(c * GraphicsConstants.CELL_SIZE - 15 + GraphicsConstants.MAP_X_OFFSET, GraphicsConstants.MAP_H - r * GraphicsConstants.CELL_SIZE + 10, GraphicsConstants.ROBOT_DIR_W, GraphicsConstants.ROBOT_DIR_H);
-                break;
+    public void repaint() {
+        published = snapshot();
+        for (MapListener listener : listeners) {
+            listener.repaintRequested();
         }
     }
 
-    private class _DisplayCell {
-        public final int cellX;
-        public final int cellY;
-        public final int cellSize;
-
-        public _DisplayCell(int borderX, int borderY, int borderSize) {
-            this.cellX = borderX + GraphicsConstants.CELL_LINE_WEIGHT;
-            this.cellY = GraphicsConstants.MAP_H - (borderY - GraphicsConstants.CELL_LINE_WEIGHT);
-            this.cellSize = borderSize - (GraphicsConstants.CELL_LINE_WEIGHT * 2);
-        }
+    /**
+     * Returns the robot on this map.
+     */
+    public Robot getRobot() {
+        return bot;
     }
 }
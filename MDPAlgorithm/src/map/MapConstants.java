@@ -7,9 +7,9 @@ package map;
  */
 
 public class MapConstants {
-    public static final int MAP_SIZE = 300;     // total num of cells
-    public static final int MAP_ROWS = 20;      // total num of rows
-    public static final int MAP_COLS = 15;      // total num of cols
+    public static final int MAP_SIZE = 300;     // total num of cells of the default arena
+    public static final int MAP_ROWS = 20;      // total num of rows of the default arena, see Map.getRows()
+    public static final int MAP_COLS = 15;      // total num of cols of the default arena, see Map.getCols()
     public static final int GOAL_ROW = 18;      // row no. of goal cell
     public static final int GOAL_COL = 13;      // col no. of goal cell
     //Assume waypoint is reachable
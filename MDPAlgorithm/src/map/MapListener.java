@@ -0,0 +1,18 @@
+package map;
+
+/**
+ * Listener for changes to the cells of a Map.
+ */
+
+public interface MapListener {
+    /**
+     * Called after the explored, obstacle or virtual wall state of the cell at [row, col] may have changed.
+     */
+    void cellChanged(int row, int col);
+
+    /**
+     * Called when a redraw of the map was requested through Map.repaint(), e.g. after the robot moved.
+     */
+    default void repaintRequested() {
+    }
+}
@@ -0,0 +1,71 @@
+package map;
+
+/**
+ * Read-only view of the cells of a map. Implemented by Map itself, for use on the thread that changes it, and by
+ * MapSnapshot, an immutable copy that any thread can read while the map keeps changing.
+ */
+
+public interface MapReader {
+    int getRows();
+
+    int getCols();
+
+    /**
+     * Returns the no. of cells in the map.
+     */
+    int getCellCount();
+
+    /**
+     * Returns a counter that changes whenever a cell of the map changes.
+     */
+    long getVersion();
+
+    /**
+     * Returns a hash of the explored and obstacle state of all cells. Maps of the same size in the same state have the
+     * same hash.
+     */
+    long getStateHash();
+
+    /**
+     * Returns the row no. of the centre of the goal zone.
+     */
+    default int getGoalRow() {
+        return getRows() - 2;
+    }
+
+    /**
+     * Returns the col no. of the centre of the goal zone.
+     */
+    default int getGoalCol() {
+        return getCols() - 2;
+    }
+
+    /**
+     * Returns true if the row and column values are valid.
+     */
+    default boolean checkValidCoordinates(int row, int col) {
+        return row >= 0 && col >= 0 && row < getRows() && col < getCols();
+    }
+
+    boolean isExploredCell(int row, int col);
+
+    boolean isObstacleCell(int row, int col);
+
+    boolean isVirtualWallCell(int row, int col);
+
+    /**
+     * Returns true if the robot's centre can be on a cell, i.e. it is explored, not an obstacle and not a virtual
+     * wall.
+     */
+    boolean isFreeCell(int row, int col);
+
+    /**
+     * Returns the no. of 64-cell words of the explored and obstacle planes, with cell row * cols + col at bit
+     * (index & 63) of word (index >>> 6).
+     */
+    int getWordCount();
+
+    long getExploredWord(int w);
+
+    long getObstacleWord(int w);
+}
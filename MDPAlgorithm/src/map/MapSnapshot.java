@@ -0,0 +1,93 @@
+package map;
+
+/**
+ * Immutable copy of the cells of a Map at one version, taken with Map.snapshot(). The snapshot shares its bitplanes
+ * with the map until the map next changes them, so taking one is cheap. It can be read by any thread, e.g. a planner
+ * or the renderer, without locking the thread that changes the map.
+ */
+
+public final class MapSnapshot implements MapReader {
+    private final BitGrid bits;
+    private final int rows;
+    private final int cols;
+    private final long version;
+    private final long stateHash;
+
+    MapSnapshot(BitGrid bits, long version, long stateHash) {
+        this.bits = bits.snapshot();
+        this.rows = bits.getRows();
+        this.cols = bits.getCols();
+        this.version = version;
+        this.stateHash = stateHash;
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getCols() {
+        return cols;
+    }
+
+    @Override
+    public int getCellCount() {
+        return rows * cols;
+    }
+
+    /**
+     * Returns the version of the map this snapshot was taken at.
+     */
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public long getStateHash() {
+        return stateHash;
+    }
+
+    @Override
+    public boolean isExploredCell(int row, int col) {
+        return bits.isExplored(row * cols + col);
+    }
+
+    @Override
+    public boolean isObstacleCell(int row, int col) {
+        return bits.isObstacle(row * cols + col);
+    }
+
+    @Override
+    public boolean isVirtualWallCell(int row, int col) {
+        return bits.isVirtualWall(row * cols + col);
+    }
+
+    @Override
+    public boolean isFreeCell(int row, int col) {
+        return bits.isFree(row * cols + col);
+    }
+
+    @Override
+    public int getWordCount() {
+        return bits.getWordCount();
+    }
+
+    @Override
+    public long getExploredWord(int w) {
+        return bits.getExploredWord(w);
+    }
+
+    @Override
+    public long getObstacleWord(int w) {
+        return bits.getObstacleWord(w);
+    }
+
+    /**
+     * Returns the no. of explored cells.
+     */
+    public int countExplored() {
+        return bits.countExplored();
+    }
+}
@@ -0,0 +1,218 @@
+package map;
+
+import robot.Robot;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.image.BufferedImage;
+import java.util.BitSet;
+
+// @formatter:off
+/**
+ * Swing view of a Map for the simulator, redrawing only what changed.
+ *
+ * The view observes the map as a MapListener, so the map itself needs no AWT or Swing classes. The cells are kept in
+ * an off-screen image. Cells reported by cellChanged() are marked dirty and redrawn into the image on the next paint,
+ * and only the screen rectangle covering them and the robot is repainted. Map.repaint() requests from the algorithms,
+ * which may come several times per robot step and from any thread, are coalesced into at most one frame per
+ * FRAME_INTERVAL_MS.
+ *
+ * Cells are drawn from the MapSnapshot published by the last Map.repaint(), never from the map itself, so the EDT
+ * reads a consistent state without locking the thread that changes the map. Cells that changed after that snapshot
+ * stay dirty, and their screen area stays in the area to repaint, until a frame finds a newer one published.
+ *
+ * Screen coordinates of cell [row, col]: x = MAP_X_OFFSET + col * CELL_SIZE, y = (rows - row) * CELL_SIZE.
+ */
+// @formatter:on
+
+public class MapView extends JPanel implements MapListener, ActionListener {
+    private static final long serialVersionUID = 1L;
+
+    private final Map map;
+    private final Robot bot;
+    private final int rows;
+    private final int cols;
+    private final Timer frameTimer;
+    private BufferedImage image;                // cells of the map, row rows - 1 at the top
+    private final BitSet dirtyCells;            // cells to redraw into the image
+    private Rectangle dirtyRect;                // screen area to repaint in the next frame, or null
+    private long dirtyVersion;                  // map version after the last reported change
+    private boolean frameScheduled;
+    private long lastFrameTime;
+    private int paintedRobotRow = -1;           // robot position in the last frame
+    private int paintedRobotCol = -1;
+
+    /**
+     * Creates a view of a map and the robot on it, and registers it as a listener of the map.
+     */
+    public MapView(Map map) {
+        this.map = map;
+        this.bot = map.getRobot();
+        this.rows = map.getRows();
+        this.cols = map.getCols();
+        this.dirtyCells = new BitSet(rows * cols);
+        this.frameTimer = new Timer(GraphicsConstants.FRAME_INTERVAL_MS, this);
+        this.frameTimer.setRepeats(false);
+        map.addMapListener(this);
+    }
+
+    public Map getMap() {
+        return map;
+    }
+
+    @Override
+    public synchronized void cellChanged(int row, int col) {
+        dirtyCells.set(row * cols + col);
+        dirtyVersion = map.getVersion();
+        dirtyRect = union(dirtyRect, getCellBounds(row, col, 1));
+    }
+
+    /**
+     * Schedules a frame for the changes made so far. Can be called from any thread.
+     */
+    @Override
+    public synchronized void repaintRequested() {
+        if (frameScheduled) return;
+
+        frameScheduled = true;
+        long wait = lastFrameTime + GraphicsConstants.FRAME_INTERVAL_MS - System.currentTimeMillis();
+        frameTimer.setInitialDelay((int) Math.max(0, wait));
+        frameTimer.restart();
+    }
+
+    /**
+     * Called on the EDT when a scheduled frame is due. Repaints the dirty cells and the old and new robot position.
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        Rectangle rect;
+        synchronized (this) {
+            frameScheduled = false;
+            lastFrameTime = System.currentTimeMillis();
+            rect = dirtyRect;
+            dirtyRect = null;
+        }
+
+        if (bot != null) {
+            if (paintedRobotRow >= 0) rect = union(rect, getCellBounds(paintedRobotRow, paintedRobotCol, 3));
+            rect = union(rect, getCellBounds(bot.getRobotPosRow(), bot.getRobotPosCol(), 3));
+        }
+        if (rect != null) repaint(rect);
+    }
+
+    /**
+     * Overrides JComponent's paintComponent() method. It brings the off-screen image up to date, copies it to the
+     * screen and paints the robot on top.
+     */
+    @Override
+    public void paintComponent(Graphics g) {
+        super.paintComponent(g);
+
+        if (image == null) {
+            image = new BufferedImage(cols * GraphicsConstants.CELL_SIZE, rows * GraphicsConstants.CELL_SIZE, BufferedImage.TYPE_INT_RGB);
+            Graphics2D ig = image.createGraphics();
+            ig.setColor(getBackground());
+            ig.fillRect(0, 0, image.getWidth(), image.getHeight());
+            ig.dispose();
+            synchronized (this) {
+                dirtyCells.set(0, rows * cols);
+            }
+        }
+
+        drawDirtyCells();
+        g.drawImage(image, GraphicsConstants.MAP_X_OFFSET, GraphicsConstants.CELL_SIZE, null);
+
+        if (bot != null) {
+            paintRobot(g, bot.getRobotPosRow(), bot.getRobotPosCol());
+            paintedRobotRow = bot.getRobotPosRow();
+            paintedRobotCol = bot.getRobotPosCol();
+        }
+    }
+
+    /**
+     * Redraws the dirty cells into the off-screen image with the appropriate colors, as of the published snapshot.
+     */
+    private void drawDirtyCells() {
+        MapSnapshot snapshot = map.getPublishedSnapshot();
+        BitSet cells;
+        boolean stale;
+        synchronized (this) {
+            if (dirtyCells.isEmpty()) return;
+            cells = (BitSet) dirtyCells.clone();
+            stale = snapshot.getVersion() < dirtyVersion;
+            if (!stale) {
+                dirtyCells.clear();
+            } else {
+                // Drawn again once a newer snapshot is published, so their screen area must be repainted again too.
+                for (int i = cells.nextSetBit(0); i >= 0; i = cells.nextSetBit(i + 1)) {
+                    dirtyRect = union(dirtyRect, getCellBounds(i / cols, i % cols, 1));
+                }
+            }
+        }
+        if (stale) repaintRequested();
+
+        Graphics2D ig = image.createGraphics();
+        int size = GraphicsConstants.CELL_SIZE - (GraphicsConstants.CELL_LINE_WEIGHT * 2);
+        for (int i = cells.nextSetBit(0); i >= 0; i = cells.nextSetBit(i + 1)) {
+            int row = i / cols;
+            int col = i % cols;
+            Color cellColor;
+
+            if (map.inStartZone(row, col))
+                cellColor = GraphicsConstants.C_START;
+            else if (map.inGoalZone(row, col))
+                cellColor = GraphicsConstants.C_GOAL;
+            else {
+                if (!snapshot.isExploredCell(row, col))
+                    cellColor = GraphicsConstants.C_UNEXPLORED;
+                else if (snapshot.isObstacleCell(row, col))
+                    cellColor = GraphicsConstants.C_OBSTACLE;
+                else
+                    cellColor = GraphicsConstants.C_FREE;
+            }
+
+            ig.setColor(cellColor);
+            ig.fillRect(col * GraphicsConstants.CELL_SIZE + GraphicsConstants.CELL_LINE_WEIGHT, (rows - 1 - row) * GraphicsConstants.CELL_SIZE + GraphicsConstants.CELL_LINE_WEIGHT, size, size);
+        }
+        ig.dispose();
+    }
+
+    /**
+     * Paints the robot centred on [r, c] and its direction indicator.
+     */
+    private void paintRobot(Graphics g, int r, int c) {
+        int mapH = rows * GraphicsConstants.CELL_SIZE;
+        g.setColor(GraphicsConstants.C_ROBOT);
+        g.fillOval((c - 1) * GraphicsConstants.CELL_SIZE + GraphicsConstants.ROBOT_X_OFFSET + GraphicsConstants.MAP_X_OFFSET, mapH - (r * GraphicsConstants.CELL_SIZE + GraphicsConstants.ROBOT_Y_OFFSET), GraphicsConstants.ROBOT_W, GraphicsConstants.ROBOT_H);
+
+        g.setColor(GraphicsConstants.C_ROBOT_DIR);
+        switch (bot.getRobotCurDir()) {
+            case NORTH:
+                g.fillOval(c * GraphicsConstants.CELL_SIZE + 10 + GraphicsConstants.MAP_X_OFFSET, mapH - r * GraphicsConstants.CELL_SIZE - 15, GraphicsConstants.ROBOT_DIR_W, GraphicsConstants.ROBOT_DIR_H);
+                break;
+            case EAST:
+                g.fillOval(c * GraphicsConstants.CELL_SIZE + 35 + GraphicsConstants.MAP_X_OFFSET, mapH - r * GraphicsConstants.CELL_SIZE + 10, GraphicsConstants.ROBOT_DIR_W, GraphicsConstants.ROBOT_DIR_H);
+                break;
+            case SOUTH:
+                g.fillOval(c * GraphicsConstants.CELL_SIZE + 10 + GraphicsConstants.MAP_X_OFFSET, mapH - r * GraphicsConstants.CELL_SIZE + 35, GraphicsConstants.ROBOT_DIR_W, GraphicsConstants.ROBOT_DIR_H);
+                break;
+            case WEST:
+                g.fillOval(c * GraphicsConstants.CELL_SIZE - 15 + GraphicsConstants.MAP_X_OFFSET, mapH - r * GraphicsConstants.CELL_SIZE + 10, GraphicsConstants.ROBOT_DIR_W, GraphicsConstants.ROBOT_DIR_H);
+                break;
+        }
+    }
+
+    /**
+     * Returns the screen area of the size x size block of cells centred on [row, col].
+     */
+    private Rectangle getCellBounds(int row, int col, int size) {
+        int half = size / 2;
+        return new Rectangle(GraphicsConstants.MAP_X_OFFSET + (col - half) * GraphicsConstants.CELL_SIZE, (rows - row - half) * GraphicsConstants.CELL_SIZE, size * GraphicsConstants.CELL_SIZE, size * GraphicsConstants.CELL_SIZE);
+    }
+
+    private static Rectangle union(Rectangle a, Rectangle b) {
+        return a == null ? b : a.union(b);
+    }
+}
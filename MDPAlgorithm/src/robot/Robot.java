@@ -5,6 +5,7 @@ import map.MapConstants;
 import robot.RobotConstants.DIRECTION;
 import robot.RobotConstants.MOVEMENT;
 import utils.CommMgr;
+import utils.Log;
 import utils.MapDescriptor;
 
 import java.util.concurrent.TimeUnit;
@@ -41,6 +42,8 @@ public class Robot {
     private final Sensor SRRight;           // east-facing right SR
     private final Sensor LRLeft;            // west-facing left LR
     private boolean touchedGoal;
+    private int goalRow = MapConstants.GOAL_ROW;
+    private int goalCol = MapConstants.GOAL_COL;
     private final boolean realBot;
 
     public Robot(int row, int col, boolean realBot) {
@@ -81,6 +84,10 @@ public class Robot {
         this.speed = speed;
     }
 
+    public int getSpeed() {
+        return speed;
+    }
+
     public DIRECTION getRobotCurDir() {
         return robotDir;
     }
@@ -89,8 +96,17 @@ public class Robot {
         return realBot;
     }
 
+    /**
+     * Sets the goal cell that the robot must touch, e.g. Map.getGoalRow() & getGoalCol() for an arena that is not of
+     * the default size.
+     */
+    public void setGoal(int row, int col) {
+        goalRow = row;
+        goalCol = col;
+    }
+
     private void updateTouchedGoal() {
-        if (this.getRobotPosRow() == MapConstants.GOAL_ROW && this.getRobotPosCol() == MapConstants.GOAL_COL)
+        if (this.getRobotPosRow() == goalRow && this.getRobotPosCol() == goalCol)
             this.touchedGoal = true;
     }
 
@@ -108,7 +124,7 @@ public class Robot {
             try {
                 TimeUnit.MILLISECONDS.sleep(speed);
             } catch (InterruptedException e) {
-                System.out.println("Something went wrong in Robot.move()!");
+                Log.error("Something went wrong in Robot.move()!");
             }
         }
 
@@ -152,12 +168,12 @@ public class Robot {
             case CALIBRATE:
                 break;
             default:
-                System.out.println("Error in Robot.move()!");
+                Log.error("Error in Robot.move()!");
                 break;
         }
 
         if (realBot) sendMovement(m, sendMoveToAndroid);
-        else System.out.println("Move: " + MOVEMENT.print(m));
+        else if (Log.isDebugEnabled()) Log.debug("Move: " + MOVEMENT.print(m));
 
         updateTouchedGoal();
     }
@@ -315,10 +331,15 @@ public class Robot {
             CommMgr comm = CommMgr.getCommMgr();
 
             while(true){
-                System.out.println("Waiting for Arduino sensor's data...");
+                Log.debug("Waiting for Arduino sensor's data...");
                 //comm.getCommMgr().sendMsg(CommMgr.GET_SENSOR, CommMgr.GET_SENSOR);
 
-                String msg = comm.recvMsg();
+                //only SDATA is taken here, other messages stay queued for their readers
+                String msg = comm.recvMsg(CommMgr.SENSOR_DATA);
+                if (msg == null) {
+                    Log.error("Connection closed while waiting for sensor data");
+                    return result;
+                }
                 String[] msgArr = msg.split(Pattern.quote("|")); //SDATA|3, 5, 2, 2, 162, 3
                 //msgArr[0] = SDATA
                 //msgArr[1] = msg
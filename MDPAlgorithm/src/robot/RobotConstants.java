@@ -14,6 +14,10 @@ public class RobotConstants {
     public static final int MOVE_COST = 10;                         // cost of FORWARD, BACKWARD movement
     public static final int TURN_COST = 20;                         // cost of RIGHT, LEFT movement
     public static final int SPEED = 200;                            // delay between movements (ms)
+    public static final int MAX_FORWARD_STEPS = 10;                 // max no. of cells in one multi-forward instruction
+    public static final int INSTRUCTION_LATENCY = 500;              // time charged per instruction until one is configured or measured (ms)
+    public static final int MOVE_TIME = 250;                        // estimated time to move forward one cell (ms)
+    public static final int TURN_TIME = 600;                        // estimated time to turn 90 degrees (ms)
     public static final DIRECTION START_DIR = DIRECTION.NORTH;      // start direction
     public static final int SENSOR_SHORT_RANGE_L = 1;               // range of short range sensor (cells)
     public static final int SENSOR_SHORT_RANGE_H = 2;               // range of short range sensor (cells)
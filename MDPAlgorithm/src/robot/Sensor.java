@@ -61,7 +61,7 @@ public class Sensor {
                 int col = this.sensorPosCol + (colInc * i);
 
                 if (!exploredMap.checkValidCoordinates(row, col)) return i;
-                if (realMap.getCell(row, col).getIsObstacle()) return i;
+                if (realMap.isObstacleCell(row, col)) return i;
             }
         }
 
@@ -72,9 +72,9 @@ public class Sensor {
 
             if (!exploredMap.checkValidCoordinates(row, col)) return i;
 
-            exploredMap.getCell(row, col).setIsExplored(true);
+            exploredMap.setIsExplored(row, col, true);
 
-            if (realMap.getCell(row, col).getIsObstacle()) {
+            if (realMap.isObstacleCell(row, col)) {
                 exploredMap.setObstacleCell(row, col, true);
                 return i;
             }
@@ -116,7 +116,7 @@ public class Sensor {
             int col = this.sensorPosCol + (colInc * i);
 
             if (!exploredMap.checkValidCoordinates(row, col)) return;
-            if (exploredMap.getCell(row, col).getIsObstacle()) return;
+            if (exploredMap.isObstacleCell(row, col)) return;
         }
 
         // Update map according to sensor's value.
@@ -128,13 +128,13 @@ public class Sensor {
             if (!exploredMap.checkValidCoordinates(row, col)) continue;
 
             //setting cell as explored if valid coordinate within the lower range and upper range
-            exploredMap.getCell(row, col).setIsExplored(true);
+            exploredMap.setIsExplored(row, col, true);
 
             //if sensor detects something at distance i within the lower range and upper range
             //set obstacle cell
             if (sensorVal == i) {
                 //if long range sensor is updating the value of cells that are explored, dont update
-                if(exploredMap.getCell(row, col).getIsExplored() && id.equals("LRL")){
+                if(exploredMap.isExploredCell(row, col) && id.equals("LRL")){
                     break;
                 }
                 exploredMap.setObstacleCell(row, col, true);
@@ -142,7 +142,7 @@ public class Sensor {
             }
 
             // Override previous obstacle value if front sensors detect no obstacle.
-            if (exploredMap.getCell(row, col).getIsObstacle()) {
+            if (exploredMap.isObstacleCell(row, col)) {
                 if (id.equals("SRFL") || id.equals("SRFC") || id.equals("SRFR")) {
                     exploredMap.setObstacleCell(row, col, false);
 //                    exploredMap.getCell(row,col).setIsPermanent(true);
@@ -1,18 +1,28 @@
 package simulator;
 
+import algorithms.CandidateEvaluator;
+import algorithms.DistanceFieldCache;
 import algorithms.ExplorationAlgo;
 import algorithms.FastestPathAlgo;
+import algorithms.PathCache;
+import algorithms.PathPlanner;
 import map.Cell;
 import map.Map;
 import map.MapConstants;
+import map.MapView;
 import robot.Robot;
 import robot.RobotConstants;
 import utils.CommMgr;
+import utils.Log;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
 import java.util.regex.Pattern;
 
 import static utils.MapDescriptor.generateMapDescriptor;
@@ -31,31 +41,93 @@ public class Simulator {
     private static Map exploredMap = null;          // exploration map
 
     private static int timeLimit = 360;            // time limit in seconds, 360 seconds = 6 minutes
-    private static int coverageLimit = 300;         // coverage limit
+    private static int coverageLimit;               // coverage limit in cells, all cells of the arena by default
+
+    private static final PathCache pathCache = new PathCache(64);     // plans shared by all fastest path runs
+    private static PathPlanner planner = null;                          // planner for exploredMap shared by all fastest path runs
+    private static CandidateEvaluator candidateEvaluator = null;        // chooses exploration targets, or null for the nearest
 
     private static final CommMgr comm = CommMgr.getCommMgr();
     private static final boolean realRun = true;
 
+    /**
+     * Returns the time in ms to charge per instruction when planning for the real robot: -Dcomm.instructionLatency=MS
+     * if set, else the acknowledgement latency measured so far, else INSTRUCTION_LATENCY.
+     */
+    private static int getInstructionLatency() {
+        Integer configured = Integer.getInteger("comm.instructionLatency");
+        return configured != null ? configured : comm.getInstructionLatency(RobotConstants.INSTRUCTION_LATENCY);
+    }
+
     /**
      * Initialises the different maps and displays the application.
      */
     public static void main(String[] args) {
+        // Log level can be chosen with -Dlog.level=DEBUG|INFO|WARN|ERROR|OFF, and changed at runtime with the Log
+        // button in the simulator or by typing the level on the console in a real run, which has no buttons.
+        Log.setLevel(Log.Level.valueOf(System.getProperty("log.level", "INFO").toUpperCase()));
+
+        // Keep console output off the robot's control loop during a real run.
+        if (realRun) {
+            Log.setAsync(true);
+            startLogLevelConsole();
+        }
+
+        // Messages to the Arduino in flight and the ms to wait for each acknowledgement: -Dcomm.window=N -Dcomm.ackTimeout=MS.
+        comm.setSendWindow(Integer.getInteger("comm.window", 2), Long.getLong("comm.ackTimeout", 500L));
         if (realRun) comm.openConnection();
 
+        // Arena size can be chosen with -Dmap.rows=N -Dmap.cols=N for simulations larger than the 20x15 arena.
+        int rows = Integer.getInteger("map.rows", MapConstants.MAP_ROWS);
+        int cols = Integer.getInteger("map.cols", MapConstants.MAP_COLS);
+
+        // Exploration targets are chosen in parallel from the N nearest with -Dexplore.candidates=N [-Dexplore.seed=S].
+        int candidates = Integer.getInteger("explore.candidates", 0);
+        if (candidates > 0) candidateEvaluator = new CandidateEvaluator(rows, cols, candidates, Long.getLong("explore.seed", 0L));
+
         bot = new Robot(RobotConstants.START_ROW, RobotConstants.START_COL, realRun);
 
         if (!realRun) {
-            realMap = new Map(bot);
+            realMap = new Map(bot, rows, cols);
             realMap.setAllUnexplored();
         }
 
-        exploredMap = new Map(bot);
+        exploredMap = new Map(bot, rows, cols);
         exploredMap.setAllUnexplored();
+        planner = new PathPlanner(exploredMap);
+        planner.setPathCache(pathCache);
+        bot.setGoal(exploredMap.getGoalRow(), exploredMap.getGoalCol());
+        coverageLimit = exploredMap.getCellCount();
 
         displayEverything();
 
     }
 
+    /**
+     * Starts a background thread that reads log levels typed on the console, one per line, and switches to them.
+     */
+    private static void startLogLevelConsole() {
+        Thread console = new Thread(() -> {
+            BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.trim().isEmpty()) continue;
+                    try {
+                        Log.setLevel(Log.Level.valueOf(line.trim().toUpperCase()));
+                        System.out.println("Log level: " + Log.getLevel());
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("Unknown log level: " + line.trim() + ", expected one of " + Arrays.toString(Log.Level.values()));
+                    }
+                }
+            } catch (IOException e) {
+                Log.warn("Log level console stopped: " + e.getMessage());
+            }
+        }, "log-console");
+        console.setDaemon(true);
+        console.start();
+    }
+
     /**
      * Initialises the different parts of the application.
      */
@@ -114,10 +186,12 @@ public class Simulator {
                 //bot passed in is true in real run
                 //bot pos (1,1) facing north
                 exploration = new ExplorationAlgo(exploredMap, realMap, bot, coverageLimit, timeLimit);
+                exploration.setCandidateEvaluator(candidateEvaluator);
+                exploration.setPathCache(pathCache);
 
                 while (true){
                     System.out.println("Waiting for WAY_POINT coordinates...");
-                    String waypointMsg = CommMgr.getCommMgr().recvMsg();
+                    String waypointMsg = comm.recvMsg(CommMgr.WAY_POINT);
                     System.out.println("\n");
                     String[] msgArr = waypointMsg.split(Pattern.quote("|")); //WAY_POINT|Waypoint: 10,10
 
@@ -132,7 +206,7 @@ public class Simulator {
 
                 while (true) {
                     System.out.println("Waiting for EX_START...");
-                    String msg = comm.recvMsg();
+                    String msg = comm.recvMsg(CommMgr.EX_START);
                     System.out.println("\n");
                     if (msg.equals(CommMgr.EX_START)){
                         while(true){
@@ -150,6 +224,7 @@ public class Simulator {
 
                 exploration.runExploration();
                 generateMapDescriptor(exploredMap);
+                if (Log.isInfoEnabled()) Log.info(comm.getSendWindow().toString());
 
 
 //                bot.setRobotPos(RobotConstants.START_ROW, RobotConstants.START_COL);
@@ -158,11 +233,10 @@ public class Simulator {
                 //FastestPath exploration
                 while (true) {
                     System.out.println("Waiting for FP_START...");
-                    String msg = comm.recvMsg();
+                    String msg = comm.recvMsg(CommMgr.FP_START);
                     System.out.println("\n");
                     if (msg.equals(CommMgr.FP_START)) {
-                        FastestPathAlgo fastestPath1;
-                        FastestPathAlgo fastestPath2;
+                        FastestPathAlgo fastestPath;
                         //delete
                         //exploredMap.setObstacleCell(16,8,false);
                         //exploredMap.setObstacleCell(12,8,false);
@@ -172,16 +246,19 @@ public class Simulator {
                         System.out.println(bot.getRobotPosRow() + "," + bot.getRobotPosCol());
                         System.out.println(bot.getRobotCurDir());
 
-                        fastestPath1 = new FastestPathAlgo(exploredMap, bot);
-                        fastestPath1.runFastestPath(MapConstants.WAYPOINT_ROW, MapConstants.WAYPOINT_COL);
-
-                        //Debugging
-                        System.out.println("Current bot position after waypoint exploration: ");
-                        System.out.println(bot.getRobotPosRow() + "," + bot.getRobotPosCol());
-                        System.out.println(bot.getRobotCurDir());
-
-                        fastestPath2 = new FastestPathAlgo(exploredMap, bot);
-                        fastestPath2.runFastestPath(RobotConstants.GOAL_ROW, RobotConstants.GOAL_COL);
+                        //start -> waypoint -> goal in one search, so the heading at the waypoint suits both legs
+                        //on the real robot, minimise the predicted time of the instructions sent rather than steps
+                        //set every mode, as the planner is shared by all fastest path runs
+                        fastestPath = new FastestPathAlgo(exploredMap, bot, planner);
+                        fastestPath.setHeadingAware(false);
+                        fastestPath.setDistanceFields(null);
+                        fastestPath.setCommandAware(true);
+                        fastestPath.setInstructionLatency(getInstructionLatency());
+                        if (fastestPath.runFastestPath(MapConstants.WAYPOINT_ROW, MapConstants.WAYPOINT_COL, exploredMap.getGoalRow(), exploredMap.getGoalCol()) == null) {
+                            //waypoint unreachable, go to goal directly
+                            fastestPath.runFastestPath(exploredMap.getGoalRow(), exploredMap.getGoalCol());
+                        }
+                        if (Log.isInfoEnabled()) Log.info(pathCache.toString());
 
                         //Debugging
                         System.out.println("Current bot position : ");
@@ -204,7 +281,7 @@ public class Simulator {
 //                System.out.println(bot.getRobotPosRow() + "," + bot.getRobotPosCol());
 //                System.out.println(bot.getRobotCurDir());
 //
-//                fastestPath1 = new FastestPathAlgo(exploredMap, bot);
+//                fastestPath1 = new FastestPathAlgo(exploredMap, bot, planner);
 //                fastestPath1.runFastestPath(MapConstants.WAYPOINT_ROW, MapConstants.WAYPOINT_COL);
 //
 //                //Debugging
@@ -212,8 +289,8 @@ public class Simulator {
 //                System.out.println(bot.getRobotPosRow() + "," + bot.getRobotPosCol());
 //                System.out.println(bot.getRobotCurDir());
 //
-//                fastestPath2 = new FastestPathAlgo(exploredMap, bot);
-//                fastestPath2.runFastestPath(RobotConstants.GOAL_ROW, RobotConstants.GOAL_COL);
+//                fastestPath2 = new FastestPathAlgo(exploredMap, bot, planner);
+//                fastestPath2.runFastestPath(exploredMap.getGoalRow(), exploredMap.getGoalCol());
 //
 //                //Debugging
 //                System.out.println("Current bot position : ");
@@ -235,9 +312,9 @@ public class Simulator {
      */
     private static void initMainLayout() {
         if (!realRun) {
-            _mapCards.add(realMap, "REAL_MAP");
+            _mapCards.add(new MapView(realMap), "REAL_MAP");
         }
-        _mapCards.add(exploredMap, "EXPLORATION");
+        _mapCards.add(new MapView(exploredMap), "EXPLORATION");
 
         CardLayout cl = ((CardLayout) _mapCards.getLayout());
         if (!realRun) {
@@ -305,25 +382,29 @@ public class Simulator {
                 bot.setRobotPos(RobotConstants.START_ROW, RobotConstants.START_COL);
                 exploredMap.repaint();
 
-                FastestPathAlgo fastestPath1;
-                FastestPathAlgo fastestPath2;
+                FastestPathAlgo fastestPath;
 
                 //Debugging
                 System.out.println("Current bot position before waypoint exploration: ");
                 System.out.println(bot.getRobotPosRow() + "," + bot.getRobotPosCol());
                 System.out.println(bot.getRobotCurDir());
-
-                fastestPath1 = new FastestPathAlgo(exploredMap, bot);
-                fastestPath1.runFastestPath(MapConstants.WAYPOINT_ROW, MapConstants.WAYPOINT_COL);
                 System.out.println("Waypoint ROW:" + MapConstants.WAYPOINT_ROW + " Waypoint COL : " + MapConstants.WAYPOINT_COL);
 
-                //Debugging
-                System.out.println("Current bot position after waypoint exploration: ");
-                System.out.println(bot.getRobotPosRow() + "," + bot.getRobotPosCol());
-                System.out.println(bot.getRobotCurDir());
-
-                fastestPath2 = new FastestPathAlgo(exploredMap, bot);
-                fastestPath2.runFastestPath(RobotConstants.GOAL_ROW, RobotConstants.GOAL_COL);
+                DistanceFieldCache distanceFields = new DistanceFieldCache(exploredMap);
+                distanceFields.addTarget(exploredMap.getGoalRow(), exploredMap.getGoalCol());
+
+                //start -> waypoint -> goal in one search, so the heading at the waypoint suits both legs
+                //set every mode, as the planner is shared by all fastest path runs
+                fastestPath = new FastestPathAlgo(exploredMap, bot, planner);
+                fastestPath.setHeadingAware(true);
+                fastestPath.setDistanceFields(distanceFields);
+                fastestPath.setCommandAware(false);
+                fastestPath.setInstructionLatency(RobotConstants.INSTRUCTION_LATENCY);
+                if (fastestPath.runFastestPath(MapConstants.WAYPOINT_ROW, MapConstants.WAYPOINT_COL, exploredMap.getGoalRow(), exploredMap.getGoalCol()) == null) {
+                    //waypoint unreachable, go to goal directly
+                    fastestPath.runFastestPath(exploredMap.getGoalRow(), exploredMap.getGoalCol());
+                }
+                if (Log.isInfoEnabled()) Log.info(pathCache.toString());
 
                 //Debugging
                 //System.out.println("Current bot position : ");
@@ -343,6 +424,8 @@ public class Simulator {
 
                 ExplorationAlgo exploration;
                 exploration = new ExplorationAlgo(exploredMap, realMap, bot, coverageLimit, timeLimit);
+                exploration.setCandidateEvaluator(candidateEvaluator);
+                exploration.setPathCache(pathCache);
 
                 exploration.runExploration();
                 generateMapDescriptor(exploredMap);
@@ -384,6 +467,9 @@ public class Simulator {
                 exploredMap.repaint();
 
                 ExplorationAlgo timeExplo = new ExplorationAlgo(exploredMap, realMap, bot, coverageLimit, timeLimit);
+
+                timeExplo.setCandidateEvaluator(candidateEvaluator);
+                timeExplo.setPathCache(pathCache);
                 timeExplo.runExploration();
 
                 generateMapDescriptor(exploredMap);
@@ -431,6 +517,9 @@ public class Simulator {
                 exploredMap.repaint();
 
                 ExplorationAlgo coverageExplo = new ExplorationAlgo(exploredMap, realMap, bot, coverageLimit, timeLimit);
+
+                coverageExplo.setCandidateEvaluator(candidateEvaluator);
+                coverageExplo.setPathCache(pathCache);
                 coverageExplo.runExploration();
 
                 generateMapDescriptor(exploredMap);
@@ -453,7 +542,7 @@ public class Simulator {
                 coverageSaveButton.addMouseListener(new MouseAdapter() {
                     public void mousePressed(MouseEvent e) {
                         coverageExploDialog.setVisible(false);
-                        coverageLimit = (int) ((Integer.parseInt(coverageTF.getText())) * MapConstants.MAP_SIZE / 100.0);
+                        coverageLimit = (int) ((Integer.parseInt(coverageTF.getText())) * exploredMap.getCellCount() / 100.0);
                         new CoverageExploration().execute();
                         CardLayout cl = ((CardLayout) _mapCards.getLayout());
                         cl.show(_mapCards, "EXPLORATION");
@@ -467,5 +556,17 @@ public class Simulator {
             }
         });
         _buttons.add(btn_CoverageExploration);
+
+        // Log Level Button, cycles through the log levels
+        JButton btn_LogLevel = new JButton("Log: " + Log.getLevel());
+        formatButton(btn_LogLevel);
+        btn_LogLevel.addMouseListener(new MouseAdapter() {
+            public void mousePressed(MouseEvent e) {
+                Log.Level[] levels = Log.Level.values();
+                Log.setLevel(levels[(Log.getLevel().ordinal() + 1) % levels.length]);
+                btn_LogLevel.setText("Log: " + Log.getLevel());
+            }
+        });
+        _buttons.add(btn_LogLevel);
     }
 }
@@ -0,0 +1,109 @@
+package utils;
+
+/**
+ * Bounded ring buffer of log messages that are printed to System.out by a daemon thread. offer() never blocks; if the
+ * buffer is full the message is rejected, and the number of dropped messages is printed with the next batch.
+ */
+
+class AsyncAppender implements Runnable {
+    private final String[] buffer;
+    private final Thread thread;
+    private long head;          // no. of messages taken from the buffer
+    private long tail;          // no. of messages put into the buffer
+    private long printed;       // no. of messages printed
+    private long dropped;       // no. of messages rejected since the last report
+    private boolean closed;
+
+    AsyncAppender(int capacity) {
+        this.buffer = new String[capacity];
+        this.thread = new Thread(this, "log-appender");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues a message. Returns false if the buffer is full or the appender is closed.
+     */
+    synchronized boolean offer(String msg) {
+        if (closed || tail - head == buffer.length) return false;
+
+        buffer[(int) (tail % buffer.length)] = msg;
+        if (tail++ == head) notifyAll();
+        return true;
+    }
+
+    /**
+     * Records a message that was rejected by offer() and not printed elsewhere.
+     */
+    synchronized void drop() {
+        dropped++;
+    }
+
+    /**
+     * Blocks until every message queued so far has been printed.
+     */
+    synchronized void flush() {
+        long target = tail;
+        while (printed < target && thread.isAlive()) {
+            try {
+                wait(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Prints the remaining messages and stops the background thread.
+     */
+    void close() {
+        flush();
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+    }
+
+    @Override
+    public void run() {
+        String[] batch = new String[buffer.length];
+        while (true) {
+            int count = 0;
+            long lost;
+            synchronized (this) {
+                while (head == tail && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (head == tail) return;
+
+                while (head < tail) {
+                    int i = (int) (head % buffer.length);
+                    batch[count++] = buffer[i];
+                    buffer[i] = null;
+                    head++;
+                }
+                lost = dropped;
+                dropped = 0;
+            }
+
+            // Print outside the lock so that producers are never blocked by console I/O.
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                sb.append(batch[i]).append(System.lineSeparator());
+                batch[i] = null;
+            }
+            if (lost > 0) sb.append("(").append(lost).append(" log messages dropped)").append(System.lineSeparator());
+            System.out.print(sb);
+
+            synchronized (this) {
+                printed += count;
+                notifyAll();
+            }
+        }
+    }
+}
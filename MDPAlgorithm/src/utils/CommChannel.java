@@ -0,0 +1,146 @@
+package utils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking socket connection served by a daemon thread. The thread waits on a Selector, splits the bytes it reads
+ * into lines, decodes each one into a CommMessage for the sink, and writes the messages queued by send() in order.
+ * send() never blocks on the socket, and the sink is called on the I/O thread.
+ */
+
+class CommChannel implements Runnable {
+    private static final int BUFFER_SIZE = 4096;
+
+    private final SocketChannel channel;
+    private final Selector selector;
+    private final SelectionKey key;
+    private final Consumer<CommMessage> sink;
+    private final ConcurrentLinkedQueue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final Thread thread;
+    private byte[] line = new byte[256];    // bytes of the current line so far
+    private int lineLength;
+    private volatile boolean open;
+
+    /**
+     * Connects to host:port, blocking until the connection is established, and starts the I/O thread.
+     */
+    CommChannel(String host, int port, Consumer<CommMessage> sink) throws IOException {
+        this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+        this.channel.setOption(StandardSocketOptions.TCP_NODELAY, true);     // messages are small and latency bound
+        this.channel.configureBlocking(false);
+        this.selector = Selector.open();
+        this.key = channel.register(selector, SelectionKey.OP_READ);
+        this.sink = sink;
+        this.open = true;
+        this.thread = new Thread(this, "comm-io");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues bytes to be written by the I/O thread. Returns false if the connection is closed.
+     */
+    boolean send(byte[] bytes) {
+        if (!open) return false;
+
+        outbound.add(ByteBuffer.wrap(bytes));
+        selector.wakeup();
+        return true;
+    }
+
+    boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Stops the I/O thread and closes the connection. Messages not yet written are discarded.
+     */
+    void close() throws IOException {
+        open = false;
+        selector.wakeup();
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        selector.close();
+        channel.close();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (open) {
+                // Only ask to be woken for writing while there is something to write.
+                key.interestOps(outbound.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                selector.select();
+                if (!open || !selector.selectedKeys().remove(key)) continue;
+
+                if (key.isReadable()) read();
+                if (open && key.isWritable()) write();
+            }
+        } catch (IOException e) {
+            Log.error("CommChannel --> IOException: " + e.getMessage());
+        } finally {
+            open = false;
+        }
+    }
+
+    /**
+     * Reads what is available and passes every complete line to the sink.
+     */
+    private void read() throws IOException {
+        if (channel.read(readBuffer) < 0) {
+            Log.error("CommChannel --> Connection closed by peer");
+            open = false;
+            return;
+        }
+
+        readBuffer.flip();
+        while (readBuffer.hasRemaining()) {
+            byte b = readBuffer.get();
+            if (b != '\n') {
+                if (lineLength == line.length) line = Arrays.copyOf(line, lineLength * 2);
+                line[lineLength++] = b;
+                continue;
+            }
+
+            String frame = new String(line, 0, lineLength, StandardCharsets.UTF_8).trim();
+            lineLength = 0;
+            if (frame.isEmpty()) continue;
+
+            try {
+                sink.accept(CommMessage.parse(frame));
+            } catch (RuntimeException e) {
+                Log.error("CommChannel --> Failed to handle \"" + frame + "\": " + e);
+            }
+        }
+        readBuffer.clear();
+    }
+
+    /**
+     * Writes queued messages until the queue is empty or the socket cannot take more.
+     */
+    private void write() throws IOException {
+        ByteBuffer buffer;
+        while ((buffer = outbound.peek()) != null) {
+            channel.write(buffer);
+            if (buffer.hasRemaining()) return;
+
+            outbound.poll();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package utils;
+
+/**
+ * A message received from the RasPi: one line of the form TYPE or TYPE|payload, e.g. "EX_START" or
+ * "SDATA|3, 5, 2, 2, 162, 3".
+ */
+
+public final class CommMessage {
+    private final String type;
+    private final String payload;
+    private final String frame;
+
+    private CommMessage(String type, String payload, String frame) {
+        this.type = type;
+        this.payload = payload;
+        this.frame = frame;
+    }
+
+    /**
+     * Decodes a line without its line terminator. The type is the text before the first '|', and the payload the
+     * text after it, or "" if there is no '|'.
+     */
+    static CommMessage parse(String frame) {
+        int bar = frame.indexOf('|');
+        if (bar < 0) return new CommMessage(frame, "", frame);
+
+        return new CommMessage(frame.substring(0, bar), frame.substring(bar + 1), frame);
+    }
+
+    /**
+     * Returns the type of the message, e.g. CommMgr.SENSOR_DATA.
+     */
+    public String getType() {
+        return type;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    /**
+     * Returns the whole line as received.
+     */
+    public String getFrame() {
+        return frame;
+    }
+
+    @Override
+    public String toString() {
+        return frame;
+    }
+}
@@ -1,13 +1,30 @@
 package utils;
 
-import java.io.*;
-import java.net.Socket;
-import java.net.UnknownHostException;
+import java.io.IOException;
+import java.nio.channels.UnresolvedAddressException;
 import java.nio.charset.Charset;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Communication manager to communicate with the different parts of the system via the RasPi.
  *
+ * Messages are received by the I/O thread of a CommChannel and delivered by type: to the listener set for the type
+ * with setListener(), or else to a queue per type that recv() takes from. No message is dropped, and a thread waiting
+ * for one type of message is not affected by messages of other types.
+ *
+ * sendMsg() returns as soon as the message is queued for writing. Messages to the Arduino are flow controlled by a
+ * SendWindow: the Arduino answers every instruction and sensor request with SENSOR_DATA, which is taken as the
+ * acknowledgement, and no more than the size of the window are sent ahead of their acknowledgements.
+ *
+ * An acknowledgement is still queued for recv() like any other message, as Robot.sense() reads it during exploration.
+ * Where nothing reads them, e.g. during a fastest path run, discardAcks() must be called afterwards so that they are
+ * not taken for sensor data later. It also drops the acknowledgements still owed for messages that timed out, when
+ * they arrive.
+ *
  * @author SuyashLakhotia
  */
 
@@ -22,13 +39,21 @@ public class CommMgr {
     public static final String INSTRUCTIONS = "INSTR";      // PC --> Arduino
     public static final String SENSOR_DATA = "SDATA";       // Arduino --> PC
 
+    private static final String HOST = "192.168.26.1";
+    private static final int PORT = 2626;
+    private static final long POLL_INTERVAL = 100;          // ms between checks of the connection while waiting
+    private static final int SEND_WINDOW = 2;               // default no. of Arduino messages in flight
+    private static final long ACK_TIMEOUT = 500;            // default ms before an unacknowledged message is dropped from the window
+
     private static CommMgr commMgr = null;
-    private static Socket conn = null;
 
-    private BufferedWriter writer;
-    private BufferedReader reader;
+    private volatile CommChannel channel;
+    private volatile SendWindow sendWindow = new SendWindow(SEND_WINDOW, ACK_TIMEOUT);
+    private volatile String ackType = SENSOR_DATA;
+    private int ackDiscards;        // no. of acknowledgements still to be dropped on arrival, guarded by listeners
+    private final ConcurrentHashMap<String, BlockingQueue<CommMessage>> queues = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Consumer<CommMessage>> listeners = new ConcurrentHashMap<>();
 
-    private static final Charset UTF_8 = Charset.forName("UTF-8");
     private static final Charset ISO = Charset.forName("ISO-8859-1");
 
     private CommMgr() {
@@ -42,54 +67,52 @@ public class CommMgr {
     }
 
     public void openConnection() {
-        System.out.println("Opening connection...");
+        openConnection(HOST, PORT);
+    }
 
-        try {
-            String HOST = "192.168.26.1";
-            int PORT = 2626;
-            conn = new Socket(HOST, PORT);
+    /**
+     * Connects to the given host and port instead of the RasPi, e.g. a local stand-in for it.
+     */
+    public void openConnection(String host, int port) {
+        Log.info("Opening connection...");
 
-            writer = new BufferedWriter(new OutputStreamWriter(new BufferedOutputStream(conn.getOutputStream())));
-            reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
+        try {
+            channel = new CommChannel(host, port, this::dispatch);
 
-            System.out.println("openConnection() --> " + "Connection established successfully!");
+            Log.info("openConnection() --> " + "Connection established successfully!");
 
             return;
-        } catch (UnknownHostException e) {
-            System.out.println("openConnection() --> UnknownHostException");
+        } catch (UnresolvedAddressException e) {
+            Log.error("openConnection() --> UnresolvedAddressException");
         } catch (IOException e) {
-            System.out.println("openConnection() --> IOException");
+            Log.error("openConnection() --> IOException");
         } catch (Exception e) {
-            System.out.println("openConnection() --> Exception");
-            System.out.println(e.toString());
+            Log.error("openConnection() --> Exception");
+            Log.error(e.toString());
         }
 
-        System.out.println("Failed to establish connection!");
+        Log.error("Failed to establish connection!");
     }
 
     public void closeConnection() {
-        System.out.println("Closing connection...");
+        Log.info("Closing connection...");
 
         try {
-            reader.close();
-
-            if (conn != null) {
-                conn.close();
-                conn = null;
+            if (channel != null) {
+                channel.close();
+                channel = null;
             }
-            System.out.println("Connection closed!");
+            Log.info("Connection closed!");
         } catch (IOException e) {
-            System.out.println("closeConnection() --> IOException");
-        } catch (NullPointerException e) {
-            System.out.println("closeConnection() --> NullPointerException");
+            Log.error("closeConnection() --> IOException");
         } catch (Exception e) {
-            System.out.println("closeConnection() --> Exception");
-            System.out.println(e.toString());
+            Log.error("closeConnection() --> Exception");
+            Log.error(e.toString());
         }
     }
 
     public void sendMsg(String msg, String msgType) {
-        System.out.println("Sending a message...");
+        Log.debug("Sending a message...");
 
         try {
 //            String outputMsg;
@@ -111,48 +134,164 @@ public class CommMgr {
                 outputMsg = "Alg|And|md1|"+arrOfStr[0]+"|and|And|md2|"+arrOfStr[1] + "|"; //changed
             }
 
-            System.out.println("Sending out message:\n" + outputMsg + "\n");
-            String value = new String(outputMsg.getBytes(ISO), UTF_8);
-            writer.write(value);
-            writer.flush();
-
-            try{
-                Thread.sleep(500);
-            } catch (InterruptedException e) {
-                System.out.println("Something went wrong in Robot.move()!");
+            // Wait for a credit before sending to the Arduino, instead of a fixed delay after every message.
+            if (msgType.equals(GET_SENSOR) || msgType.equals(INSTRUCTIONS)) {
+                if (!sendWindow.acquire()) Log.error("Interrupted while waiting to send, sending anyway");
             }
 
-        } catch (IOException e) {
-            System.out.println("sendMsg() --> IOException");
+            if (Log.isDebugEnabled()) Log.debug("Sending out message:\n" + outputMsg + "\n");
+            if (channel == null || !channel.send(outputMsg.getBytes(ISO))) {
+                Log.error("sendMsg() --> Not connected");
+            }
         } catch (Exception e) {
-            System.out.println("sendMsg() --> Exception");
-            System.out.println(e.toString());
+            Log.error("sendMsg() --> Exception");
+            Log.error(e.toString());
         }
     }
 
-    public String recvMsg() {
-        System.out.println("Receiving a message...");
+    /**
+     * Replaces the flow control of messages to the Arduino: at most size messages are in flight, and a message that is
+     * not acknowledged within ackTimeout ms gives up its place. Should be called before messages are sent.
+     */
+    public void setSendWindow(int size, long ackTimeout) {
+        synchronized (listeners) {
+            sendWindow = new SendWindow(size, ackTimeout);
+            ackDiscards = 0;
+        }
+    }
+
+    /**
+     * Returns the flow control of messages to the Arduino, with the measured acknowledgement latency.
+     */
+    public SendWindow getSendWindow() {
+        return sendWindow;
+    }
+
+    /**
+     * Waits for the acknowledgements of the messages in flight, then discards all queued acknowledgements. The
+     * acknowledgements still owed for messages that timed out are dropped when they arrive. Returns the no. of
+     * messages discarded now.
+     */
+    public int discardAcks() {
+        sendWindow.awaitIdle();
+
+        int count = 0;
+        synchronized (listeners) {
+            BlockingQueue<CommMessage> queue = getQueue(ackType);
+            while (queue.poll() != null) {
+                count++;
+            }
+            ackDiscards = sendWindow.getOwed();
+        }
+        if ((count > 0 || ackDiscards > 0) && Log.isDebugEnabled()) Log.debug("Discarded " + count + " unread " + ackType + " messages, dropping " + ackDiscards + " more on arrival");
+        return count;
+    }
+
+    /**
+     * Returns the time in ms to charge per instruction when planning for the real robot: the mean acknowledgement
+     * latency measured so far, or defaultLatency if no message has been acknowledged yet.
+     */
+    public int getInstructionLatency(int defaultLatency) {
+        SendWindow window = sendWindow;
+        return window.getAcked() > 0 ? (int) Math.round(window.getMeanLatency()) : defaultLatency;
+    }
+
+    /**
+     * Sets the type of message that acknowledges a message to the Arduino, SENSOR_DATA by default.
+     */
+    public void setAckType(String ackType) {
+        this.ackType = ackType;
+    }
+
+    /**
+     * Blocks until a message of the given type is received and returns it, or returns null if the connection is
+     * closed with no such message waiting or the thread is interrupted.
+     */
+    public CommMessage recv(String type) {
+        CommMessage msg;
+        while ((msg = recv(type, POLL_INTERVAL)) == null) {
+            if (Thread.currentThread().isInterrupted()) return null;
+            if (!isConnected()) return recv(type, 0);
+        }
+        return msg;
+    }
 
+    /**
+     * Waits up to timeout ms for a message of the given type and returns it, or null if none was received.
+     */
+    public CommMessage recv(String type, long timeout) {
         try {
-            StringBuilder sb = new StringBuilder();
-            String input = reader.readLine();
+            CommMessage msg = getQueue(type).poll(timeout, TimeUnit.MILLISECONDS);
+            if (msg != null && Log.isDebugEnabled()) Log.debug("Received message: " + msg);
+            return msg;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Blocks until a message of the given type is received and returns the whole line, e.g. "SDATA|3, 5, 2, 2, 162,
+     * 3", or null if the connection is closed.
+     */
+    public String recvMsg(String type) {
+        Log.debug("Receiving a message...");
 
-            if (input != null && input.length() > 0) {
-                sb.append(input);
-                System.out.println(sb.toString());
-                return sb.toString();
+        CommMessage msg = recv(type);
+        return msg != null ? msg.getFrame() : null;
+    }
+
+    /**
+     * Sets a listener for a type of message, or removes it if listener is null. The listener is called on the I/O
+     * thread, first with the messages of that type already waiting, and must not block. Messages of a type without
+     * a listener are queued for recv().
+     */
+    public void setListener(String type, Consumer<CommMessage> listener) {
+        synchronized (listeners) {
+            if (listener == null) {
+                listeners.remove(type);
+                return;
+            }
+
+            listeners.put(type, listener);
+            CommMessage msg;
+            while ((msg = getQueue(type).poll()) != null) {
+                listener.accept(msg);
             }
-        } catch (IOException e) {
-            System.out.println("recvMsg() --> IOException");
-        } catch (Exception e) {
-            System.out.println("recvMsg() --> Exception");
-            System.out.println(e.toString());
         }
+    }
+
+    /**
+     * Delivers a received message to the listener for its type or its queue. Called on the I/O thread.
+     */
+    private void dispatch(CommMessage msg) {
+        synchronized (listeners) {
+            boolean isAck = msg.getType().equals(ackType);
+            if (isAck && ackDiscards > 0) {
+                // A late acknowledgement that discardAcks() did not wait for.
+                ackDiscards--;
+                sendWindow.ack();
+                if (Log.isDebugEnabled()) Log.debug("Dropped late acknowledgement: " + msg);
+                return;
+            }
+
+            Consumer<CommMessage> listener = listeners.get(msg.getType());
+            if (listener != null) {
+                listener.accept(msg);
+            } else {
+                getQueue(msg.getType()).add(msg);
+            }
+
+            // Acknowledge after queueing, so that discardAcks() finds every acknowledgement it waited for.
+            if (isAck) sendWindow.ack();
+        }
+    }
 
-        return null;
+    private BlockingQueue<CommMessage> getQueue(String type) {
+        return queues.computeIfAbsent(type, t -> new LinkedBlockingQueue<>());
     }
 
     public boolean isConnected() {
-        return conn.isConnected();
+        return channel != null && channel.isOpen();
     }
 }
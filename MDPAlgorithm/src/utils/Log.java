@@ -0,0 +1,103 @@
+package utils;
+
+// @formatter:off
+/**
+ * Small leveled logging facade used instead of System.out.
+ *
+ * Messages below the current level are dropped. Building a message string is the expensive part of logging, so hot
+ * loops guard the call:
+ *
+ *     if (Log.isDebugEnabled()) Log.debug("Movement " + m + " from (" + row + ", " + col + ")");
+ *
+ * which costs one field read when DEBUG is disabled. By default messages are printed on the calling thread. With
+ * setAsync(true) they are queued in a ring buffer and printed by a background thread, so that console I/O never
+ * blocks the robot; DEBUG and INFO messages are dropped rather than blocking when the buffer is full.
+ */
+// @formatter:on
+
+public class Log {
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR, OFF
+    }
+
+    private static final int BUFFER_SIZE = 4096;        // no. of messages in the async ring buffer
+
+    private static volatile Level level = Level.INFO;
+    private static volatile AsyncAppender asyncAppender = null;
+
+    private Log() {
+    }
+
+    public static void setLevel(Level newLevel) {
+        level = newLevel;
+    }
+
+    public static Level getLevel() {
+        return level;
+    }
+
+    public static boolean isDebugEnabled() {
+        return level == Level.DEBUG;
+    }
+
+    public static boolean isInfoEnabled() {
+        return level.ordinal() <= Level.INFO.ordinal();
+    }
+
+    public static void debug(String msg) {
+        if (isDebugEnabled()) write(msg, false);
+    }
+
+    public static void info(String msg) {
+        if (isInfoEnabled()) write(msg, false);
+    }
+
+    public static void warn(String msg) {
+        if (level.ordinal() <= Level.WARN.ordinal()) write(msg, true);
+    }
+
+    public static void error(String msg) {
+        if (level.ordinal() <= Level.ERROR.ordinal()) write(msg, true);
+    }
+
+    /**
+     * Switches between printing on the calling thread and printing from a background thread. Switching back prints
+     * all queued messages first.
+     */
+    public static synchronized void setAsync(boolean async) {
+        if (async && asyncAppender == null) {
+            asyncAppender = new AsyncAppender(BUFFER_SIZE);
+        } else if (!async && asyncAppender != null) {
+            AsyncAppender appender = asyncAppender;
+            asyncAppender = null;
+            appender.close();
+        }
+    }
+
+    public static boolean isAsync() {
+        return asyncAppender != null;
+    }
+
+    /**
+     * Blocks until all queued messages have been printed.
+     */
+    public static void flush() {
+        AsyncAppender appender = asyncAppender;
+        if (appender != null) appender.flush();
+    }
+
+    private static void write(String msg, boolean mustPrint) {
+        AsyncAppender appender = asyncAppender;
+        if (appender != null) {
+            if (appender.offer(msg)) return;
+
+            // The buffer is full: drop DEBUG and INFO messages, print warnings and errors on this thread.
+            if (!mustPrint) {
+                appender.drop();
+                return;
+            }
+        }
+
+        System.out.println(msg);
+    }
+}
@@ -1,7 +1,7 @@
 package utils;
 
 import map.Map;
-import map.MapConstants;
+import map.MapReader;
 
 import java.io.*;
 
@@ -17,7 +17,7 @@ import java.io.*;
 public class MapDescriptor {
     /**
      * Reads filename.txt from disk and loads it into the passed Map object. Uses a simple binary indicator to
-     * identify if a cell is an obstacle.
+     * identify if a cell is an obstacle, one per cell of the map from the top row down.
      */
     public static void loadMapFromDisk(Map map, String filename) {
         try {
@@ -32,9 +32,14 @@ public class MapDescriptor {
             }
 
             String bin = sb.toString();
+            if (bin.length() < map.getCellCount()) {
+                Log.error("Map " + filename + " has " + bin.length() + " cells, expected " + map.getRows() + "x" + map.getCols());
+                return;
+            }
+
             int binPtr = 0;
-            for (int row = MapConstants.MAP_ROWS - 1; row >= 0; row--) {
-                for (int col = 0; col < MapConstants.MAP_COLS; col++) {
+            for (int row = map.getRows() - 1; row >= 0; row--) {
+                for (int col = 0; col < map.getCols(); col++) {
                     if (bin.charAt(binPtr) == '1') map.setObstacleCell(row, col, true);
                     binPtr++;
                 }
@@ -47,65 +52,83 @@ public class MapDescriptor {
     }
 
     /**
-     * Helper method to convert a binary string to a hex string.
+     * Generates Part 1 & Part 2 map descriptor strings from the passed map, which can be a Map on its own thread or a
+     * MapSnapshot on any thread. Both parts are built from the map's bitplanes a word at a time.
      */
-    private static String binToHex(String bin) {
-        int dec = Integer.parseInt(bin, 2);
+    public static String[] generateMapDescriptor(MapReader map) {
 
-        return Integer.toHexString(dec);
+        Log.debug("\nGenerating Map Descriptor...");
+        String[] ret = new String[2];
+
+        HexWriter part1 = new HexWriter();
+        part1.write(3L, 2);
+        for (int w = 0; w < map.getWordCount(); w++) {
+            int count = Math.min(64, map.getCellCount() - (w << 6));
+            part1.write(map.getExploredWord(w), count);
+        }
+        part1.write(3L, 2);
+        ret[0] = part1.toString();
+        if (Log.isDebugEnabled()) Log.debug("P1: " + ret[0]);
+
+        // Part 2 keeps the obstacle bits of explored cells only, so the obstacle word is compacted by the explored word.
+        HexWriter part2 = new HexWriter();
+        for (int w = 0; w < map.getWordCount(); w++) {
+            long explored = map.getExploredWord(w);
+            long obstacle = map.getObstacleWord(w);
+            long packed = 0;
+            int count = 0;
+            for (long m = explored; m != 0; m &= m - 1) {
+                if ((obstacle & Long.lowestOneBit(m)) != 0) packed |= 1L << count;
+                count++;
+            }
+            part2.write(packed, count);
+        }
+        ret[1] = part2.toString();
+        if (Log.isDebugEnabled()) Log.debug("P2: " + ret[1] + "\n\n");
+
+        return ret;
     }
 
     /**
-     * Generates Part 1 & Part 2 map descriptor strings from the passed Map object.
+     * Converts a stream of bits into hex digits, with the first bit of every group of four as the most significant
+     * bit of its digit. A trailing group of fewer than four bits is converted as a number of that many bits.
      */
-    public static String[] generateMapDescriptor(Map map) {
-
-        System.out.println("\nGenerating Map Descriptor...");
-        String[] ret = new String[2];
-
-        StringBuilder Part1 = new StringBuilder();
-        StringBuilder Part1_bin = new StringBuilder();
-        Part1_bin.append("11");
-        for (int r = 0; r < MapConstants.MAP_ROWS; r++) {
-            for (int c = 0; c < MapConstants.MAP_COLS; c++) {
-                if (map.getCell(r, c).getIsExplored())
-                    Part1_bin.append("1");
-                else
-                    Part1_bin.append("0");
-
-                if (Part1_bin.length() == 4) {
-                    Part1.append(binToHex(Part1_bin.toString()));
-                    Part1_bin.setLength(0);
+    private static final class HexWriter {
+        private final StringBuilder out = new StringBuilder();
+        private long pending;       // bits not yet converted, first bit in bit 0
+        private int pendingCount;
+
+        /**
+         * Appends the low count bits of bits to the stream, bit 0 first.
+         */
+        void write(long bits, int count) {
+            while (count > 0) {
+                int n = Math.min(count, 32);
+                pending |= (bits & ((1L << n) - 1)) << pendingCount;
+                pendingCount += n;
+                bits >>>= n;
+                count -= n;
+
+                while (pendingCount >= 4) {
+                    out.append(digit((int) pending & 15, 4));
+                    pending >>>= 4;
+                    pendingCount -= 4;
                 }
             }
         }
-        Part1_bin.append("11");
-        Part1.append(binToHex(Part1_bin.toString()));
-        System.out.println("P1: " + Part1.toString());
-        ret[0] = Part1.toString();
-
-        StringBuilder Part2 = new StringBuilder();
-        StringBuilder Part2_bin = new StringBuilder();
-        for (int r = 0; r < MapConstants.MAP_ROWS; r++) {
-            for (int c = 0; c < MapConstants.MAP_COLS; c++) {
-                if (map.getCell(r, c).getIsExplored()) {
-                    if (map.getCell(r, c).getIsObstacle())
-                        Part2_bin.append("1");
-                    else
-                        Part2_bin.append("0");
-
-                    if (Part2_bin.length() == 4) {
-                        Part2.append(binToHex(Part2_bin.toString()));
-                        Part2_bin.setLength(0);
-                    }
-                }
-            }
+
+        /**
+         * Returns the hex digit of count stream bits held with the first bit in bit 0.
+         */
+        private static char digit(int bits, int count) {
+            return Character.forDigit(Integer.reverse(bits) >>> (32 - count), 16);
         }
-        if (Part2_bin.length() > 0) Part2.append(binToHex(Part2_bin.toString()));
-        System.out.println("P2: " + Part2.toString());
-        System.out.println("\n");
-        ret[1] = Part2.toString();
 
-        return ret;
+        @Override
+        public String toString() {
+            if (pendingCount == 0) return out.toString();
+
+            return out.toString() + digit((int) pending, pendingCount);
+        }
     }
 }
@@ -0,0 +1,164 @@
+package utils;
+
+/**
+ * Credit-based flow control for messages that the receiver acknowledges. At most capacity messages are in flight:
+ * acquire() blocks while the window is full, and every ack() frees the credit of the message it acknowledges and
+ * records its latency. A message that is not acknowledged within ackTimeout ms gives up its credit, so a slow or
+ * missing acknowledgement delays the sender by at most ackTimeout.
+ *
+ * The receiver answers messages in the order they were sent, so the n-th acknowledgement is matched to the n-th
+ * message by sequence number. The acknowledgement of a message that timed out is still owed: when it arrives late it
+ * is counted as late and does not free the credit of, or record a latency for, a later message.
+ */
+
+public class SendWindow {
+    private final long[] sentAt;        // System.nanoTime() at which each message in flight was sent, by sequence no.
+    private final long ackTimeout;      // ns
+    private long sent;                  // sequence no. of the next message
+    private long released;              // sequence no. of the oldest message in flight
+    private long answered;              // sequence no. of the message the next acknowledgement answers
+    private long acked;
+    private long timedOut;
+    private long late;
+    private long totalLatency;          // ns
+    private long maxLatency;            // ns
+
+    public SendWindow(int capacity, long ackTimeout) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        if (ackTimeout < 0) throw new IllegalArgumentException("Invalid ack timeout: " + ackTimeout);
+
+        this.sentAt = new long[capacity];
+        this.ackTimeout = ackTimeout * 1000000L;
+    }
+
+    /**
+     * Takes a credit for a message about to be sent, waiting while the window is full. Returns false without taking
+     * one if the thread is interrupted.
+     */
+    synchronized boolean acquire() {
+        while (sent - released == sentAt.length) {
+            if (!awaitOldest()) return false;
+        }
+
+        sentAt[(int) (sent % sentAt.length)] = System.nanoTime();
+        sent++;
+        return true;
+    }
+
+    /**
+     * Waits until every message in flight has been acknowledged or has timed out. Returns false if the thread is
+     * interrupted first.
+     */
+    synchronized boolean awaitIdle() {
+        while (sent > released) {
+            if (!awaitOldest()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Waits until the oldest message in flight is acknowledged or times out, or until notified. Returns false if the
+     * thread is interrupted.
+     */
+    private boolean awaitOldest() {
+        long remaining = sentAt[(int) (released % sentAt.length)] + ackTimeout - System.nanoTime();
+        if (remaining <= 0) {
+            // Its acknowledgement is now owed, and is matched to it if it still arrives.
+            released++;
+            timedOut++;
+            notifyAll();
+            return true;
+        }
+
+        try {
+            wait(remaining / 1000000L, (int) (remaining % 1000000L));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Records the acknowledgement of the oldest message not yet answered. Returns false if that message had already
+     * timed out, in which case nothing else changes. Acknowledgements with no message to answer are ignored.
+     */
+    synchronized boolean ack() {
+        if (answered == sent) return true;
+
+        long seq = answered++;
+        if (seq < released) {
+            late++;
+            return false;
+        }
+
+        long latency = System.nanoTime() - sentAt[(int) (seq % sentAt.length)];
+        released++;
+        acked++;
+        totalLatency += latency;
+        maxLatency = Math.max(maxLatency, latency);
+        notifyAll();
+        return true;
+    }
+
+    public int getCapacity() {
+        return sentAt.length;
+    }
+
+    /**
+     * Returns the time in ms after which an unacknowledged message gives up its credit.
+     */
+    public long getAckTimeout() {
+        return ackTimeout / 1000000L;
+    }
+
+    /**
+     * Returns the no. of messages sent and not yet acknowledged or timed out.
+     */
+    public synchronized int getInFlight() {
+        return (int) (sent - released);
+    }
+
+    /**
+     * Returns the no. of messages that timed out and whose acknowledgement has not arrived yet.
+     */
+    public synchronized int getOwed() {
+        return (int) (released - answered);
+    }
+
+    public synchronized long getAcked() {
+        return acked;
+    }
+
+    public synchronized long getTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Returns the no. of acknowledgements that arrived after their message had timed out.
+     */
+    public synchronized long getLate() {
+        return late;
+    }
+
+    /**
+     * Returns the mean time in ms from sending a message to its acknowledgement, or 0 if none was acknowledged.
+     * Messages that timed out are not counted.
+     */
+    public synchronized double getMeanLatency() {
+        return acked == 0 ? 0 : totalLatency / (acked * 1e6);
+    }
+
+    /**
+     * Returns the longest time in ms from sending a message to its acknowledgement, not counting messages that timed
+     * out.
+     */
+    public synchronized double getMaxLatency() {
+        return maxLatency / 1e6;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("SendWindow: %d acked (mean %.1f ms, max %.1f ms), %d timed out (%d acked late, %d owed), %d/%d in flight", acked, getMeanLatency(), getMaxLatency(), timedOut, late, released - answered, sent - released, sentAt.length);
+    }
+}
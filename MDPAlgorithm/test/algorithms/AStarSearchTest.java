@@ -0,0 +1,296 @@
+package algorithms;
+
+import map.Map;
+import map.MapReader;
+import org.junit.jupiter.api.Test;
+import robot.RobotConstants;
+import robot.RobotConstants.DIRECTION;
+import utils.MapDescriptor;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the index-based A* of PathPlanner against the original object-based A* of FastestPathAlgo, and its
+ * heading-aware search against a plain Dijkstra over (row, col, DIRECTION) states.
+ */
+
+class AStarSearchTest {
+    private static final int QUERIES_PER_MAP = 200;
+
+    @Test
+    void cellSearchMatchesBaselineOnArenas() {
+        String[] arenas = new File("maps").list();
+        assertNotNull(arenas, "maps/ not found, run the tests from MDPAlgorithm/");
+        Arrays.sort(arenas);
+
+        Random random = new Random(1);
+        for (String arena : arenas) {
+            Map map = new Map(null);
+            MapDescriptor.loadMapFromDisk(map, arena.replace(".txt", ""));
+            checkCellSearch(map, random, arena);
+        }
+    }
+
+    @Test
+    void cellSearchMatchesBaselineOnRandomMaps() {
+        Random random = new Random(2);
+        for (int i = 0; i < 50; i++) {
+            checkCellSearch(randomMap(random), random, "random map " + i);
+        }
+    }
+
+    @Test
+    void headingSearchFindsCheapestPath() {
+        Random random = new Random(3);
+        for (int i = 0; i < 50; i++) {
+            Map map = randomMap(random);
+            PathPlanner planner = new PathPlanner(map);
+            planner.setHeadingAware(true);
+
+            for (int q = 0; q < QUERIES_PER_MAP; q++) {
+                int start = randomFreeCell(map, random);
+                int goal = randomFreeCell(map, random);
+                DIRECTION startDir = DIRECTION.values()[random.nextInt(4)];
+
+                PathPlan plan = planner.plan(start / map.getCols(), start % map.getCols(), startDir, goal / map.getCols(), goal % map.getCols());
+                int expected = headingDijkstra(map, start, startDir, goal);
+                if (expected == Integer.MAX_VALUE) {
+                    assertNull(plan, "random map " + i + ": " + start + " -> " + goal);
+                } else {
+                    assertNotNull(plan, "random map " + i + ": " + start + " -> " + goal);
+                    assertEquals(expected, plan.getCost(), "random map " + i + ": " + start + " -> " + goal);
+                }
+            }
+        }
+    }
+
+    @Test
+    void unreachableGoalHasNoPath() {
+        Map map = new Map(null);
+        map.setAllExplored();
+        for (int col = 0; col < map.getCols(); col++) {
+            map.setObstacleCell(10, col, true);
+        }
+
+        PathPlanner planner = new PathPlanner(map);
+        assertNull(planner.plan(RobotConstants.START_ROW, RobotConstants.START_COL, DIRECTION.NORTH, map.getGoalRow(), map.getGoalCol()));
+        planner.setHeadingAware(true);
+        assertNull(planner.plan(RobotConstants.START_ROW, RobotConstants.START_COL, DIRECTION.NORTH, map.getGoalRow(), map.getGoalCol()));
+    }
+
+    private static void checkCellSearch(Map map, Random random, String name) {
+        PathPlanner planner = new PathPlanner(map);
+        for (int q = 0; q < QUERIES_PER_MAP; q++) {
+            int start = randomFreeCell(map, random);
+            int goal = randomFreeCell(map, random);
+            DIRECTION startDir = DIRECTION.values()[random.nextInt(4)];
+            String query = name + ": " + start + " " + startDir + " -> " + goal;
+
+            PathPlan plan = planner.plan(start / map.getCols(), start % map.getCols(), startDir, goal / map.getCols(), goal % map.getCols());
+            BaselineAStar baseline = new BaselineAStar(map);
+            int[] expected = baseline.search(start, startDir.ordinal(), goal);
+            if (expected == null) {
+                assertNull(plan, query);
+            } else {
+                assertNotNull(plan, query);
+                assertArrayEquals(expected, plan.getCells(), query);
+                assertEquals(baseline.getCost(goal), plan.getCost(), query);
+            }
+        }
+    }
+
+    /**
+     * Returns an explored 20x15 map with random obstacles outside the START and GOAL zones and a few unexplored cells.
+     */
+    private static Map randomMap(Random random) {
+        Map map = new Map(null);
+        map.setAllExplored();
+        for (int row = 0; row < map.getRows(); row++) {
+            for (int col = 0; col < map.getCols(); col++) {
+                int r = random.nextInt(20);
+                if (r < 3) {
+                    map.setObstacleCell(row, col, true);
+                } else if (r == 3) {
+                    map.setIsExplored(row, col, false);
+                }
+            }
+        }
+        map.setIsExplored(RobotConstants.START_ROW, RobotConstants.START_COL, true);
+        return map;
+    }
+
+    private static int randomFreeCell(MapReader map, Random random) {
+        while (true) {
+            int cell = random.nextInt(map.getCellCount());
+            if (map.isFreeCell(cell / map.getCols(), cell % map.getCols())) return cell;
+        }
+    }
+
+    /**
+     * Returns the cost of the cheapest path from start facing startDir to any state at goal, or Integer.MAX_VALUE.
+     */
+    private static int headingDijkstra(MapReader map, int start, DIRECTION startDir, int goal) {
+        int cols = map.getCols();
+        int[] dist = new int[map.getCellCount() * 4];
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        dist[start * 4 + startDir.ordinal()] = 0;
+
+        // Costs are multiples of MOVE_COST, so a bucket queue by cost keeps this a plain Dijkstra.
+        ArrayList<ArrayDeque<Integer>> buckets = new ArrayList<>();
+        buckets.add(new ArrayDeque<>());
+        buckets.get(0).add(start * 4 + startDir.ordinal());
+        for (int d = 0; d < buckets.size(); d++) {
+            ArrayDeque<Integer> bucket = buckets.get(d);
+            while (!bucket.isEmpty()) {
+                int state = bucket.poll();
+                int cost = d * RobotConstants.MOVE_COST;
+                if (dist[state] != cost) continue;
+
+                int cell = state >> 2;
+                int dir = state & 3;
+                if (cell == goal) return cost;
+
+                int row = cell / cols + (dir == 0 ? 1 : dir == 2 ? -1 : 0);
+                int col = cell % cols + (dir == 1 ? 1 : dir == 3 ? -1 : 0);
+                int[] next = {map.checkValidCoordinates(row, col) && map.isFreeCell(row, col) ? (row * cols + col) * 4 + dir : -1, cell * 4 + ((dir + 1) & 3), cell * 4 + ((dir + 3) & 3)};
+                int[] step = {RobotConstants.MOVE_COST, RobotConstants.TURN_COST, RobotConstants.TURN_COST};
+                for (int i = 0; i < 3; i++) {
+                    if (next[i] < 0 || cost + step[i] >= dist[next[i]]) continue;
+
+                    dist[next[i]] = cost + step[i];
+                    int b = dist[next[i]] / RobotConstants.MOVE_COST;
+                    while (buckets.size() <= b) buckets.add(new ArrayDeque<>());
+                    buckets.get(b).add(next[i]);
+                }
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * The A* of FastestPathAlgo before it moved onto AStarSearch, on cell indices instead of Cell objects: a list of
+     * cells to visit scanned for the lowest f(n) from the back, a HashMap of parents, and the robot's direction at a
+     * cell taken from its parent when the cell is expanded.
+     */
+    private static final class BaselineAStar {
+        private final MapReader map;
+        private final int cols;
+        private final ArrayList<Integer> toVisit = new ArrayList<>();
+        private final ArrayList<Integer> visited = new ArrayList<>();
+        private final HashMap<Integer, Integer> parents = new HashMap<>();
+        private final double[] gCosts;
+
+        BaselineAStar(MapReader map) {
+            this.map = map;
+            this.cols = map.getCols();
+            this.gCosts = new double[map.getCellCount()];
+            for (int cell = 0; cell < gCosts.length; cell++) {
+                gCosts[cell] = map.isFreeCell(cell / cols, cell % cols) ? 0 : RobotConstants.INFINITE_COST;
+            }
+        }
+
+        /**
+         * Returns the cells of the path from start to goal, both inclusive, or null if there is none.
+         */
+        int[] search(int start, int startDir, int goal) {
+            toVisit.add(start);
+            gCosts[start] = 0;
+            int curDir = startDir;
+
+            while (!toVisit.isEmpty()) {
+                int current = minimumCostCell(goal);
+                if (parents.containsKey(current)) curDir = getTargetDir(parents.get(current), curDir, current);
+
+                visited.add(current);
+                toVisit.remove((Integer) current);
+                if (current == goal) return getPath(goal);
+
+                int row = current / cols;
+                int col = current % cols;
+                int[][] neighbors = {{row + 1, col}, {row - 1, col}, {row, col - 1}, {row, col + 1}};
+                for (int[] n : neighbors) {
+                    if (!map.checkValidCoordinates(n[0], n[1]) || !map.isFreeCell(n[0], n[1])) continue;
+
+                    int neighbor = n[0] * cols + n[1];
+                    if (visited.contains(neighbor)) continue;
+
+                    double newGScore = gCosts[current] + costG(current, neighbor, curDir);
+                    if (!toVisit.contains(neighbor)) {
+                        parents.put(neighbor, current);
+                        gCosts[neighbor] = newGScore;
+                        toVisit.add(neighbor);
+                    } else if (newGScore < gCosts[neighbor]) {
+                        gCosts[neighbor] = newGScore;
+                        parents.put(neighbor, current);
+                    }
+                }
+            }
+            return null;
+        }
+
+        int getCost(int cell) {
+            return (int) gCosts[cell];
+        }
+
+        private int minimumCostCell(int goal) {
+            double minCost = Double.MAX_VALUE;
+            int result = -1;
+            for (int i = toVisit.size() - 1; i >= 0; i--) {
+                int cell = toVisit.get(i);
+                double cost = gCosts[cell] + costH(cell, goal);
+                if (cost < minCost) {
+                    minCost = cost;
+                    result = cell;
+                }
+            }
+            return result;
+        }
+
+        private double costH(int cell, int goal) {
+            double movementCost = (Math.abs(goal % cols - cell % cols) + Math.abs(goal / cols - cell / cols)) * RobotConstants.MOVE_COST;
+            if (movementCost == 0) return 0;
+
+            return movementCost + RobotConstants.TURN_COST;
+        }
+
+        private int getTargetDir(int from, int fromDir, int to) {
+            if (from % cols > to % cols) return DIRECTION.WEST.ordinal();
+            if (to % cols > from % cols) return DIRECTION.EAST.ordinal();
+            if (from / cols > to / cols) return DIRECTION.SOUTH.ordinal();
+            if (to / cols > from / cols) return DIRECTION.NORTH.ordinal();
+            return fromDir;
+        }
+
+        private double costG(int a, int b, int aDir) {
+            int numOfTurn = Math.abs(aDir - getTargetDir(a, aDir, b));
+            if (numOfTurn > 2) {
+                numOfTurn = numOfTurn % 2;
+            }
+            return RobotConstants.MOVE_COST + numOfTurn * RobotConstants.TURN_COST;
+        }
+
+        private int[] getPath(int goal) {
+            ArrayList<Integer> path = new ArrayList<>();
+            for (Integer cell = goal; cell != null; cell = parents.get(cell)) {
+                path.add(cell);
+            }
+
+            int[] cells = new int[path.size()];
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = path.get(cells.length - 1 - i);
+            }
+            return cells;
+        }
+    }
+}
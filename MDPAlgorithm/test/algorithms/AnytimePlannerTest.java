@@ -0,0 +1,132 @@
+package algorithms;
+
+import map.Map;
+import map.MapReader;
+import org.junit.jupiter.api.Test;
+import robot.RobotConstants;
+import robot.RobotConstants.DIRECTION;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the plans of AnytimePlanner against the heading-aware A* of PathPlanner: optimal when there is time for all
+ * passes, and within the reported bound after the first pass only.
+ */
+
+class AnytimePlannerTest {
+    private static final int QUERIES_PER_MAP = 20;
+
+    @Test
+    void withoutDeadlineFindsFastestPath() {
+        Random random = new Random(1);
+        for (int i = 0; i < 50; i++) {
+            Map map = randomMap(random, i % 2 == 0 ? 20 : 60, i % 2 == 0 ? 15 : 60);
+            AnytimePlanner anytime = new AnytimePlanner(map);
+            PathPlanner planner = new PathPlanner(map);
+            planner.setHeadingAware(true);
+
+            for (int q = 0; q < QUERIES_PER_MAP; q++) {
+                int[] query = randomQuery(map, random);
+                String name = "random map " + i + ": " + Arrays.toString(query);
+                PathPlan expected = planner.plan(query[0], query[1], DIRECTION.values()[query[2]], query[3], query[4]);
+                PathPlan plan = anytime.plan(query[0], query[1], DIRECTION.values()[query[2]], query[3], query[4], Long.MAX_VALUE);
+                if (expected == null) {
+                    assertNull(plan, name);
+                } else {
+                    assertNotNull(plan, name);
+                    assertEquals(expected.getCost(), plan.getCost(), name);
+                    assertEquals(plan.getCost(), pathCost(map, plan), name);
+                    assertEquals(1.0, anytime.getBound(), name);
+                }
+            }
+        }
+    }
+
+    @Test
+    void firstPassIsWithinBound() {
+        Random random = new Random(2);
+        for (int i = 0; i < 50; i++) {
+            Map map = randomMap(random, 60, 60);
+            AnytimePlanner anytime = new AnytimePlanner(map);
+            PathPlanner planner = new PathPlanner(map);
+            planner.setHeadingAware(true);
+
+            for (int q = 0; q < QUERIES_PER_MAP; q++) {
+                int[] query = randomQuery(map, random);
+                String name = "random map " + i + ": " + Arrays.toString(query);
+                PathPlan expected = planner.plan(query[0], query[1], DIRECTION.values()[query[2]], query[3], query[4]);
+                if (expected == null) continue;
+
+                // A deadline in the past still completes the first pass.
+                PathPlan plan = anytime.plan(query[0], query[1], DIRECTION.values()[query[2]], query[3], query[4], 0);
+                assertNotNull(plan, name);
+                assertEquals(1, anytime.getPasses(), name);
+                assertEquals(plan.getCost(), pathCost(map, plan), name);
+                assertTrue(plan.getCost() <= anytime.getBound() * expected.getCost(), name);
+            }
+        }
+    }
+
+    @Test
+    void unreachableGoalHasNoPath() {
+        Map map = new Map(null);
+        map.setAllExplored();
+        for (int col = 0; col < map.getCols(); col++) {
+            map.setObstacleCell(10, col, true);
+        }
+
+        AnytimePlanner anytime = new AnytimePlanner(map);
+        assertNull(anytime.plan(1, 1, DIRECTION.NORTH, 18, 13, Long.MAX_VALUE));
+    }
+
+    /**
+     * Returns the cost of moving along the cells of plan, or -1 if a step is not a move to a free adjacent cell.
+     */
+    private static int pathCost(MapReader map, PathPlan plan) {
+        int dir = plan.getStartDir().ordinal();
+        int cost = 0;
+        for (int i = 1; i < plan.size(); i++) {
+            int rowStep = plan.getRow(i) - plan.getRow(i - 1);
+            int colStep = plan.getCol(i) - plan.getCol(i - 1);
+            if (Math.abs(rowStep) + Math.abs(colStep) != 1 || !map.isFreeCell(plan.getRow(i), plan.getCol(i))) {
+                return -1;
+            }
+
+            int newDir = rowStep == 1 ? 0 : colStep == 1 ? 1 : rowStep == -1 ? 2 : 3;
+            int numOfTurn = Math.min((newDir - dir) & 3, (dir - newDir) & 3);
+            cost += RobotConstants.MOVE_COST + numOfTurn * RobotConstants.TURN_COST;
+            dir = newDir;
+        }
+        return cost;
+    }
+
+    /**
+     * Returns an explored map with obstacles in about 1 of every 12 cells.
+     */
+    private static Map randomMap(Random random, int rows, int cols) {
+        Map map = new Map(null, rows, cols);
+        map.setAllExplored();
+        for (int k = 0; k < rows * cols / 12; k++) {
+            map.setObstacleCell(random.nextInt(rows), random.nextInt(cols), true);
+        }
+        return map;
+    }
+
+    /**
+     * Returns {startRow, startCol, startDir, goalRow, goalCol} with a free start cell.
+     */
+    private static int[] randomQuery(MapReader map, Random random) {
+        int start;
+        do {
+            start = random.nextInt(map.getCellCount());
+        } while (!map.isFreeCell(start / map.getCols(), start % map.getCols()));
+        int goal = random.nextInt(map.getCellCount());
+        return new int[]{start / map.getCols(), start % map.getCols(), random.nextInt(4), goal / map.getCols(), goal % map.getCols()};
+    }
+}
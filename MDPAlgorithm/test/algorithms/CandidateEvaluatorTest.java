@@ -0,0 +1,135 @@
+package algorithms;
+
+import map.Map;
+import map.MapReader;
+import map.MapSnapshot;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import robot.RobotConstants.DIRECTION;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that CandidateEvaluator chooses the same target whatever the no. of threads, and that with no limit on the
+ * no. of candidates it chooses one with the lowest score over all of them.
+ */
+
+class CandidateEvaluatorTest {
+    private static final ForkJoinPool[] POOLS = {new ForkJoinPool(1), new ForkJoinPool(2), new ForkJoinPool(8)};
+
+    @AfterAll
+    static void shutDownPools() {
+        for (ForkJoinPool pool : POOLS) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void choiceDoesNotDependOnThreads() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            Map map = randomMap(random, i % 2 == 0 ? 20 : 60, i % 2 == 0 ? 15 : 60);
+            BitSet targets = map.getFrontierCells();
+            int start = randomFreeCell(map, random);
+            if (targets.isEmpty() || start < 0) continue;
+
+            MapSnapshot snapshot = map.snapshot();
+            DIRECTION startDir = DIRECTION.values()[random.nextInt(4)];
+            int maxCandidates = i % 4 < 2 ? Integer.MAX_VALUE : 8;
+            int expected = new CandidateEvaluator(map.getRows(), map.getCols(), POOLS[0], maxCandidates, 42).evaluate(snapshot, start / map.getCols(), start % map.getCols(), startDir, targets);
+            for (ForkJoinPool pool : POOLS) {
+                CandidateEvaluator evaluator = new CandidateEvaluator(map.getRows(), map.getCols(), pool, maxCandidates, 42);
+                for (int repeat = 0; repeat < 3; repeat++) {
+                    int best = evaluator.evaluate(snapshot, start / map.getCols(), start % map.getCols(), startDir, targets);
+                    assertEquals(expected, best, "map " + i + ", " + pool.getParallelism() + " threads");
+                }
+            }
+        }
+    }
+
+    @Test
+    void choosesLowestScore() {
+        Random random = new Random(2);
+        for (int i = 0; i < 100; i++) {
+            Map map = randomMap(random, 20, 15);
+            BitSet targets = map.getFrontierCells();
+            int start = randomFreeCell(map, random);
+            if (targets.isEmpty() || start < 0) continue;
+
+            MapSnapshot snapshot = map.snapshot();
+            int cols = map.getCols();
+            DIRECTION startDir = DIRECTION.values()[random.nextInt(4)];
+            CandidateEvaluator evaluator = new CandidateEvaluator(map.getRows(), cols, POOLS[2], Integer.MAX_VALUE, 7);
+            int best = evaluator.evaluate(snapshot, start / cols, start % cols, startDir, targets);
+
+            PathPlanner planner = new PathPlanner(snapshot);
+            planner.setHeadingAware(true);
+            long lowestScore = Long.MAX_VALUE;
+            for (int target = targets.nextSetBit(0); target >= 0; target = targets.nextSetBit(target + 1)) {
+                PathPlan plan = planner.plan(start / cols, start % cols, startDir, target / cols, target % cols);
+                if (plan != null) lowestScore = Math.min(lowestScore, plan.getCost() - (long) evaluator.getGainWeight() * gain(snapshot, target));
+            }
+
+            if (lowestScore == Long.MAX_VALUE) {
+                assertEquals(-1, best, "map " + i);
+            } else {
+                PathPlan plan = planner.plan(start / cols, start % cols, startDir, best / cols, best % cols);
+                assertEquals(lowestScore, plan.getCost() - (long) evaluator.getGainWeight() * gain(snapshot, best), "map " + i);
+                assertEquals(plan.getCost(), evaluator.getBestCost(), "map " + i);
+                assertEquals(gain(snapshot, best), evaluator.getBestGain(), "map " + i);
+            }
+        }
+    }
+
+    /**
+     * Returns the no. of unexplored cells within GAIN_RADIUS of a cell.
+     */
+    private static int gain(MapReader map, int cell) {
+        int row = cell / map.getCols();
+        int col = cell % map.getCols();
+        int result = 0;
+        for (int r = row - CandidateEvaluator.GAIN_RADIUS; r <= row + CandidateEvaluator.GAIN_RADIUS; r++) {
+            for (int c = col - CandidateEvaluator.GAIN_RADIUS; c <= col + CandidateEvaluator.GAIN_RADIUS; c++) {
+                if (map.checkValidCoordinates(r, c) && !map.isExploredCell(r, c)) result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns an explored map with random obstacles and a few unexplored blocks.
+     */
+    private static Map randomMap(Random random, int rows, int cols) {
+        Map map = new Map(null, rows, cols);
+        map.setAllExplored();
+        for (int k = 0; k < rows * cols / 14; k++) {
+            map.setObstacleCell(random.nextInt(rows), random.nextInt(cols), true);
+        }
+        for (int k = 0; k < 4; k++) {
+            int blockRow = random.nextInt(rows);
+            int blockCol = random.nextInt(cols);
+            int size = 2 + random.nextInt(rows / 4);
+            for (int r = blockRow; r < Math.min(rows, blockRow + size); r++) {
+                for (int c = blockCol; c < Math.min(cols, blockCol + size); c++) {
+                    map.setIsExplored(r, c, false);
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Returns a random free cell, or -1 if none was found in a few tries.
+     */
+    private static int randomFreeCell(MapReader map, Random random) {
+        for (int tries = 0; tries < 100; tries++) {
+            int cell = random.nextInt(map.getCellCount());
+            if (map.isFreeCell(cell / map.getCols(), cell % map.getCols())) return cell;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,159 @@
+package algorithms;
+
+import map.Map;
+import map.MapReader;
+import org.junit.jupiter.api.Test;
+import robot.RobotConstants;
+import robot.RobotConstants.DIRECTION;
+import utils.MapDescriptor;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the predicted execution times of CommandPlanner against a plain Dijkstra over the same instructions, with and
+ * without a waypoint, and that getExecutionTime() predicts the same time for the returned plan.
+ */
+
+class CommandPlannerTest {
+    private static final int QUERIES_PER_MAP = 300;
+    private static final int[] ROW_INC = {1, 0, -1, 0};
+    private static final int[] COL_INC = {0, 1, 0, -1};
+
+    @Test
+    void matchesDijkstraOnArenas() {
+        String[] arenas = new File("maps").list();
+        assertNotNull(arenas, "maps/ not found, run the tests from MDPAlgorithm/");
+        Arrays.sort(arenas);
+
+        Random random = new Random(1);
+        for (String arena : arenas) {
+            Map map = new Map(null);
+            MapDescriptor.loadMapFromDisk(map, arena.replace(".txt", ""));
+            checkQueries(map, new CommandPlanner(map), random, arena);
+        }
+    }
+
+    @Test
+    void matchesDijkstraWithMeasuredLatency() {
+        Random random = new Random(2);
+        for (int latency : new int[]{0, 120, 2000}) {
+            for (int i = 0; i < 10; i++) {
+                Map map = new Map(null);
+                map.setAllExplored();
+                for (int k = 0; k < 25; k++) {
+                    map.setObstacleCell(random.nextInt(map.getRows()), random.nextInt(map.getCols()), true);
+                }
+
+                CommandPlanner planner = new CommandPlanner(map);
+                planner.setInstructionLatency(latency);
+                checkQueries(map, planner, random, "latency " + latency + " map " + i);
+            }
+        }
+    }
+
+    @Test
+    void unreachableGoalHasNoPath() {
+        Map map = new Map(null);
+        map.setAllExplored();
+        for (int col = 0; col < map.getCols(); col++) {
+            map.setObstacleCell(10, col, true);
+        }
+
+        CommandPlanner planner = new CommandPlanner(map);
+        assertNull(planner.plan(1, 1, DIRECTION.NORTH, 18, 13));
+        assertNull(planner.planViaWaypoint(1, 1, DIRECTION.NORTH, 5, 7, 18, 13));
+    }
+
+    private static void checkQueries(Map map, CommandPlanner planner, Random random, String name) {
+        int rows = map.getRows();
+        int cols = map.getCols();
+        for (int q = 0; q < QUERIES_PER_MAP; q++) {
+            int start = random.nextInt(rows * cols);
+            int goal = random.nextInt(rows * cols);
+            int waypoint = q % 2 == 0 ? random.nextInt(rows * cols) : AStarSearch.NO_PARENT;
+            DIRECTION startDir = DIRECTION.values()[random.nextInt(4)];
+            String query = name + ": " + start + " " + startDir + " via " + waypoint + " -> " + goal;
+
+            PathPlan plan = waypoint == AStarSearch.NO_PARENT
+                    ? planner.plan(start / cols, start % cols, startDir, goal / cols, goal % cols)
+                    : planner.planViaWaypoint(start / cols, start % cols, startDir, waypoint / cols, waypoint % cols, goal / cols, goal % cols);
+            int expected = commandDijkstra(map, start * 4 + startDir.ordinal(), waypoint, goal, planner.getInstructionLatency());
+            if (expected == Integer.MAX_VALUE) {
+                assertNull(plan, query);
+                continue;
+            }
+
+            assertNotNull(plan, query);
+            assertEquals(expected, plan.getCost(), query);
+            assertEquals(expected, CommandPlanner.getExecutionTime(plan, planner.getInstructionLatency()), query);
+            boolean passesWaypoint = waypoint == AStarSearch.NO_PARENT;
+            for (int i = 0; i < plan.size(); i++) {
+                if (i > 0) {
+                    int steps = Math.abs(plan.getRow(i) - plan.getRow(i - 1)) + Math.abs(plan.getCol(i) - plan.getCol(i - 1));
+                    assertEquals(1, steps, query);
+                    assertTrue(map.isFreeCell(plan.getRow(i), plan.getCol(i)), query);
+                }
+                if (plan.getRow(i) * cols + plan.getCol(i) == waypoint) passesWaypoint = true;
+            }
+            assertTrue(passesWaypoint, query);
+        }
+    }
+
+    /**
+     * Returns the lowest predicted time from the start state to any state at goal that passes waypoint (NO_PARENT for
+     * none), or Integer.MAX_VALUE. States are (leg, row, col, DIRECTION), as in CommandPlanner.
+     */
+    private static int commandDijkstra(MapReader map, int start, int waypoint, int goal, int latency) {
+        int cols = map.getCols();
+        int layerSize = map.getCellCount() * 4;
+        int[] dist = new int[2 * layerSize];
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        PriorityQueue<int[]> open = new PriorityQueue<>((a, b) -> Integer.compare(a[0], b[0]));
+
+        int first = waypoint == AStarSearch.NO_PARENT || start >> 2 == waypoint ? start + layerSize : start;
+        dist[first] = 0;
+        open.add(new int[]{0, first});
+        while (!open.isEmpty()) {
+            int[] entry = open.poll();
+            int state = entry[1];
+            if (entry[0] > dist[state]) continue;
+
+            int leg = state >= layerSize ? layerSize : 0;
+            int cell = (state - leg) >> 2;
+            int dir = state & 3;
+            if (leg == layerSize && cell == goal) return dist[state];
+
+            int turn = latency + RobotConstants.TURN_TIME;
+            relax(dist, open, leg + cell * 4 + ((dir + 1) & 3), dist[state] + turn);
+            relax(dist, open, leg + cell * 4 + ((dir + 3) & 3), dist[state] + turn);
+
+            int row = cell / cols;
+            int col = cell % cols;
+            int nextLeg = leg;
+            for (int k = 1; k <= RobotConstants.MAX_FORWARD_STEPS; k++) {
+                row += ROW_INC[dir];
+                col += COL_INC[dir];
+                if (!map.checkValidCoordinates(row, col) || !map.isFreeCell(row, col)) break;
+
+                if (row * cols + col == waypoint) nextLeg = layerSize;
+                relax(dist, open, nextLeg + (row * cols + col) * 4 + dir, dist[state] + latency + k * RobotConstants.MOVE_TIME);
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    private static void relax(int[] dist, PriorityQueue<int[]> open, int state, int cost) {
+        if (cost < dist[state]) {
+            dist[state] = cost;
+            open.add(new int[]{cost, state});
+        }
+    }
+}
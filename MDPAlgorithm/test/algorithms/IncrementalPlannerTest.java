@@ -0,0 +1,126 @@
+package algorithms;
+
+import map.Map;
+import map.MapReader;
+import org.junit.jupiter.api.Test;
+import robot.RobotConstants.DIRECTION;
+import utils.MapDescriptor;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks that the repaired cost field of IncrementalPlanner gives the same path costs as a heading-aware search from
+ * scratch, while the robot moves towards the goal and the map changes between calls.
+ */
+
+class IncrementalPlannerTest {
+    private static final int STEPS = 30;
+
+    @Test
+    void matchesHeadingSearchOnArenas() {
+        String[] arenas = new File("maps").list();
+        assertNotNull(arenas, "maps/ not found, run the tests from MDPAlgorithm/");
+        Arrays.sort(arenas);
+
+        Random random = new Random(1);
+        for (String arena : arenas) {
+            for (int trial = 0; trial < 10; trial++) {
+                Map map = new Map(null);
+                MapDescriptor.loadMapFromDisk(map, arena.replace(".txt", ""));
+                checkRepairs(map, random, arena + " trial " + trial);
+            }
+        }
+    }
+
+    @Test
+    void matchesHeadingSearchOnRandomMaps() {
+        Random random = new Random(2);
+        for (int i = 0; i < 50; i++) {
+            Map map = new Map(null);
+            map.setAllExplored();
+            for (int k = 0; k < 25; k++) {
+                map.setObstacleCell(random.nextInt(map.getRows()), random.nextInt(map.getCols()), true);
+            }
+            checkRepairs(map, random, "random map " + i);
+        }
+    }
+
+    @Test
+    void unreachableGoalHasNoPath() {
+        Map map = new Map(null);
+        map.setAllExplored();
+        IncrementalPlanner planner = new IncrementalPlanner(map, 18, 13);
+        assertNotNull(planner.plan(1, 1, DIRECTION.NORTH));
+
+        for (int col = 0; col < map.getCols(); col++) {
+            map.setObstacleCell(10, col, true);
+        }
+        assertNull(planner.plan(1, 1, DIRECTION.NORTH));
+        planner.detach();
+    }
+
+    /**
+     * Moves the robot a few cells along each plan and flips a few cells of the map after every call to plan().
+     */
+    private static void checkRepairs(Map map, Random random, String name) {
+        int goal = randomFreeCell(map, random);
+        int cols = map.getCols();
+        IncrementalPlanner incremental = new IncrementalPlanner(map, goal / cols, goal % cols);
+        PathPlanner planner = new PathPlanner(map);
+        planner.setHeadingAware(true);
+
+        int start = randomFreeCell(map, random);
+        int row = start / cols;
+        int col = start % cols;
+        DIRECTION dir = DIRECTION.values()[random.nextInt(4)];
+        for (int step = 0; step < STEPS; step++) {
+            String query = name + " step " + step + ": " + row + "," + col + " " + dir + " -> " + goal;
+            PathPlan plan = incremental.plan(row, col, dir);
+            PathPlan expected = planner.plan(row, col, dir, goal / cols, goal % cols);
+            if (expected == null) {
+                assertNull(plan, query);
+            } else {
+                assertNotNull(plan, query);
+                assertEquals(expected.getCost(), plan.getCost(), query);
+            }
+
+            if (plan != null && plan.size() > 2) {
+                int k = 1 + random.nextInt(Math.min(3, plan.size() - 1));
+                int rowStep = plan.getRow(k) - plan.getRow(k - 1);
+                int colStep = plan.getCol(k) - plan.getCol(k - 1);
+                row = plan.getRow(k);
+                col = plan.getCol(k);
+                dir = rowStep == 1 ? DIRECTION.NORTH : rowStep == -1 ? DIRECTION.SOUTH : colStep == 1 ? DIRECTION.EAST : DIRECTION.WEST;
+            } else {
+                start = randomFreeCell(map, random);
+                row = start / cols;
+                col = start % cols;
+                dir = DIRECTION.values()[random.nextInt(4)];
+            }
+
+            for (int k = 0; k < 3; k++) {
+                int r = random.nextInt(map.getRows());
+                int c = random.nextInt(cols);
+                if (random.nextInt(3) == 0) {
+                    map.setIsExplored(r, c, !map.isExploredCell(r, c));
+                } else {
+                    map.setObstacleCell(r, c, !map.isObstacleCell(r, c));
+                }
+            }
+        }
+        incremental.detach();
+    }
+
+    private static int randomFreeCell(MapReader map, Random random) {
+        while (true) {
+            int cell = random.nextInt(map.getCellCount());
+            if (map.isFreeCell(cell / map.getCols(), cell % map.getCols())) return cell;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package algorithms;
+
+import map.Map;
+import map.MapReader;
+import org.junit.jupiter.api.Test;
+import robot.RobotConstants;
+import robot.RobotConstants.DIRECTION;
+import utils.MapDescriptor;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks that JumpPointPlanner returns valid paths with the same cost as the heading-aware A* of PathPlanner, also
+ * after the map has changed.
+ */
+
+class JumpPointPlannerTest {
+    private static final int QUERIES_PER_MAP = 200;
+
+    @Test
+    void matchesHeadingSearchOnArenas() {
+        String[] arenas = new File("maps").list();
+        assertNotNull(arenas, "maps/ not found, run the tests from MDPAlgorithm/");
+        Arrays.sort(arenas);
+
+        Random random = new Random(1);
+        for (String arena : arenas) {
+            Map map = new Map(null);
+            MapDescriptor.loadMapFromDisk(map, arena.replace(".txt", ""));
+            checkQueries(map, new JumpPointPlanner(map), random, arena);
+        }
+    }
+
+    @Test
+    void matchesHeadingSearchOnRandomMaps() {
+        Random random = new Random(2);
+        for (int i = 0; i < 50; i++) {
+            Map map = randomMap(random, 20, 15, 20);
+            checkQueries(map, new JumpPointPlanner(map), random, "random map " + i);
+        }
+        for (int i = 0; i < 5; i++) {
+            Map map = randomMap(random, 60, 80, 2 + 10 * i);
+            checkQueries(map, new JumpPointPlanner(map), random, "large random map " + i);
+        }
+    }
+
+    @Test
+    void followsMapChanges() {
+        Random random = new Random(3);
+        Map map = randomMap(random, 20, 15, 20);
+        JumpPointPlanner jps = new JumpPointPlanner(map);
+        for (int i = 0; i < 50; i++) {
+            checkQueries(map, jps, random, "change " + i);
+            for (int k = 0; k < 5; k++) {
+                int row = random.nextInt(map.getRows());
+                int col = random.nextInt(map.getCols());
+                map.setObstacleCell(row, col, !map.isObstacleCell(row, col));
+            }
+        }
+    }
+
+    @Test
+    void unreachableGoalHasNoPath() {
+        Map map = new Map(null);
+        map.setAllExplored();
+        for (int col = 0; col < map.getCols(); col++) {
+            map.setObstacleCell(10, col, true);
+        }
+
+        JumpPointPlanner jps = new JumpPointPlanner(map);
+        assertNull(jps.plan(1, 1, DIRECTION.NORTH, 18, 13));
+    }
+
+    private static void checkQueries(Map map, JumpPointPlanner jps, Random random, String name) {
+        PathPlanner planner = new PathPlanner(map);
+        planner.setHeadingAware(true);
+
+        for (int q = 0; q < QUERIES_PER_MAP; q++) {
+            int start = randomFreeCell(map, random);
+            int goal = randomFreeCell(map, random);
+            DIRECTION startDir = DIRECTION.values()[random.nextInt(4)];
+            String query = name + ": " + start + " " + startDir + " -> " + goal;
+
+            int cols = map.getCols();
+            PathPlan plan = jps.plan(start / cols, start % cols, startDir, goal / cols, goal % cols);
+            PathPlan expected = planner.plan(start / cols, start % cols, startDir, goal / cols, goal % cols);
+            if (expected == null) {
+                assertNull(plan, query);
+            } else {
+                assertNotNull(plan, query);
+                assertEquals(expected.getCost(), plan.getCost(), query);
+                assertEquals(plan.getCost(), pathCost(map, plan), query);
+            }
+        }
+    }
+
+    /**
+     * Returns the cost of moving along the cells of plan, or -1 if a step is not a move to a free adjacent cell.
+     */
+    private static int pathCost(MapReader map, PathPlan plan) {
+        int dir = plan.getStartDir().ordinal();
+        int cost = 0;
+        for (int i = 1; i < plan.size(); i++) {
+            int rowStep = plan.getRow(i) - plan.getRow(i - 1);
+            int colStep = plan.getCol(i) - plan.getCol(i - 1);
+            if (Math.abs(rowStep) + Math.abs(colStep) != 1 || !map.isFreeCell(plan.getRow(i), plan.getCol(i))) {
+                return -1;
+            }
+
+            int newDir = rowStep == 1 ? 0 : colStep == 1 ? 1 : rowStep == -1 ? 2 : 3;
+            int numOfTurn = Math.min((newDir - dir) & 3, (dir - newDir) & 3);
+            cost += RobotConstants.MOVE_COST + numOfTurn * RobotConstants.TURN_COST;
+            dir = newDir;
+        }
+        return cost;
+    }
+
+    /**
+     * Returns an explored map with obstacles in about percent % of its cells.
+     */
+    private static Map randomMap(Random random, int rows, int cols, int percent) {
+        Map map = new Map(null, rows, cols);
+        map.setAllExplored();
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (random.nextInt(100) < percent) map.setObstacleCell(row, col, true);
+            }
+        }
+        return map;
+    }
+
+    private static int randomFreeCell(MapReader map, Random random) {
+        while (true) {
+            int cell = random.nextInt(map.getCellCount());
+            if (map.isFreeCell(cell / map.getCols(), cell % map.getCols())) return cell;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package algorithms;
+
+import map.Map;
+import org.junit.jupiter.api.Test;
+import robot.RobotConstants.DIRECTION;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a PathPlanner with a PathCache returns the same plans as one without, whatever the settings and however
+ * the map changes, and that the cache hits, misses and evicts as documented.
+ */
+
+class PathCacheTest {
+    @Test
+    void cachedPlansMatchUncached() {
+        Random random = new Random(1);
+        PathCache cache = new PathCache(32);
+        for (int i = 0; i < 50; i++) {
+            Map map = new Map(null);
+            map.setAllExplored();
+            for (int k = 0; k < 25; k++) {
+                map.setObstacleCell(random.nextInt(map.getRows()), random.nextInt(map.getCols()), true);
+            }
+
+            for (int mode = 0; mode < 3; mode++) {
+                PathPlanner cached = new PathPlanner(map);
+                PathPlanner uncached = new PathPlanner(map);
+                for (PathPlanner planner : new PathPlanner[]{cached, uncached}) {
+                    planner.setHeadingAware(mode >= 1);
+                    planner.setCommandAware(mode == 2);
+                }
+                cached.setPathCache(cache);
+
+                for (int q = 0; q < 60; q++) {
+                    if (q % 20 == 19) map.setObstacleCell(random.nextInt(map.getRows()), random.nextInt(map.getCols()), random.nextBoolean());
+
+                    int startRow = 1 + random.nextInt(3);
+                    int startCol = 1 + random.nextInt(3);
+                    DIRECTION startDir = DIRECTION.values()[random.nextInt(2)];
+                    String query = "map " + i + " mode " + mode + " query " + q;
+                    if (random.nextBoolean()) {
+                        assertSamePlan(uncached.planViaWaypoint(startRow, startCol, startDir, 10, 7, 18, 13),
+                                cached.planViaWaypoint(startRow, startCol, startDir, 10, 7, 18, 13), query);
+                    } else {
+                        assertSamePlan(uncached.plan(startRow, startCol, startDir, 18, 13),
+                                cached.plan(startRow, startCol, startDir, 18, 13), query);
+                    }
+                    assertTrue(cache.size() <= cache.getCapacity(), query);
+                }
+            }
+        }
+    }
+
+    @Test
+    void repeatedQueryHitsUntilMapChanges() {
+        Map map = new Map(null);
+        map.setAllExplored();
+        PathPlanner planner = new PathPlanner(map);
+        planner.setHeadingAware(true);
+        PathCache cache = new PathCache(8);
+        planner.setPathCache(cache);
+
+        PathPlan first = planner.plan(1, 1, DIRECTION.NORTH, 18, 13);
+        assertSame(first, planner.plan(1, 1, DIRECTION.NORTH, 18, 13));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // A different setting is a different query.
+        planner.setHeadingAware(false);
+        planner.plan(1, 1, DIRECTION.NORTH, 18, 13);
+        assertEquals(2, cache.getMisses());
+        planner.setHeadingAware(true);
+
+        // The plan is keyed on the state of the map, so it is found again once the map is back in that state.
+        map.setObstacleCell(10, 7, true);
+        assertNotSame(first, planner.plan(1, 1, DIRECTION.NORTH, 18, 13));
+        assertEquals(3, cache.getMisses());
+        map.setObstacleCell(10, 7, false);
+        assertSame(first, planner.plan(1, 1, DIRECTION.NORTH, 18, 13));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        Map map = new Map(null);
+        map.setAllExplored();
+        PathPlanner planner = new PathPlanner(map);
+        PathCache cache = new PathCache(2);
+        planner.setPathCache(cache);
+
+        planner.plan(1, 1, DIRECTION.NORTH, 18, 13);
+        planner.plan(1, 1, DIRECTION.NORTH, 10, 7);
+        planner.plan(1, 1, DIRECTION.NORTH, 18, 13);      // now the most recently used
+        planner.plan(1, 1, DIRECTION.NORTH, 5, 5);        // evicts the plan to [10, 7]
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+
+        long misses = cache.getMisses();
+        planner.plan(1, 1, DIRECTION.NORTH, 18, 13);
+        assertEquals(misses, cache.getMisses());
+        planner.plan(1, 1, DIRECTION.NORTH, 10, 7);
+        assertEquals(misses + 1, cache.getMisses());
+    }
+
+    @Test
+    void unreachableGoalIsCached() {
+        Map map = new Map(null);
+        map.setAllExplored();
+        for (int col = 0; col < map.getCols(); col++) {
+            map.setObstacleCell(10, col, true);
+        }
+        PathPlanner planner = new PathPlanner(map);
+        PathCache cache = new PathCache(8);
+        planner.setPathCache(cache);
+
+        assertNull(planner.plan(1, 1, DIRECTION.NORTH, 18, 13));
+        assertNull(planner.plan(1, 1, DIRECTION.NORTH, 18, 13));
+        assertEquals(1, cache.getHits());
+    }
+
+    private static void assertSamePlan(PathPlan expected, PathPlan actual, String query) {
+        if (expected == null) {
+            assertNull(actual, query);
+            return;
+        }
+        assertNotNull(actual, query);
+        assertEquals(expected.getCost(), actual.getCost(), query);
+        assertArrayEquals(expected.getCells(), actual.getCells(), query);
+    }
+}
@@ -0,0 +1,127 @@
+package utils;
+
+import map.Map;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Round trips maps through their descriptor strings: every descriptor is decoded again and compared with the map it
+ * was generated from.
+ */
+
+class MapDescriptorTest {
+    @Test
+    void randomMapsRoundTrip() {
+        Random random = new Random(1);
+        for (int i = 0; i < 500; i++) {
+            Map map = new Map(null);
+            for (int row = 0; row < map.getRows(); row++) {
+                for (int col = 0; col < map.getCols(); col++) {
+                    if (random.nextInt(5) == 0) map.setObstacleCell(row, col, true);
+                    map.setIsExplored(row, col, random.nextInt(3) != 0);
+                }
+            }
+            assertRoundTrip(map, "random map " + i);
+        }
+    }
+
+    @Test
+    void unexploredAndExploredMapsRoundTrip() {
+        Map map = new Map(null);
+        map.setAllUnexplored();
+        assertRoundTrip(map, "unexplored map");
+        map.setAllExplored();
+        assertRoundTrip(map, "explored map");
+    }
+
+    @Test
+    void arenasRoundTrip() throws IOException {
+        String[] arenas = new File("maps").list();
+        assertNotNull(arenas, "maps/ not found, run the tests from MDPAlgorithm/");
+        Arrays.sort(arenas);
+
+        for (String arena : arenas) {
+            Map map = new Map(null);
+            MapDescriptor.loadMapFromDisk(map, arena.replace(".txt", ""));
+            assertRoundTrip(map, arena);
+
+            // Part 2 of a loaded arena holds the obstacle bits of the file, from the bottom row up.
+            String bin = String.join("", Files.readAllLines(new File("maps", arena).toPath())).trim();
+            boolean[][] obstacles = decode(MapDescriptor.generateMapDescriptor(map), map.getRows(), map.getCols())[1];
+            for (int row = 0; row < map.getRows(); row++) {
+                for (int col = 0; col < map.getCols(); col++) {
+                    char expected = bin.charAt((map.getRows() - 1 - row) * map.getCols() + col);
+                    assertEquals(expected == '1', obstacles[row][col], arena + " [" + row + ", " + col + "]");
+                }
+            }
+        }
+    }
+
+    private static void assertRoundTrip(Map map, String name) {
+        String[] descriptor = MapDescriptor.generateMapDescriptor(map);
+        boolean[][][] decoded = decode(descriptor, map.getRows(), map.getCols());
+        for (int row = 0; row < map.getRows(); row++) {
+            for (int col = 0; col < map.getCols(); col++) {
+                String cell = name + " [" + row + ", " + col + "]";
+                assertEquals(map.isExploredCell(row, col), decoded[0][row][col], cell);
+                assertEquals(map.isExploredCell(row, col) && map.isObstacleCell(row, col), decoded[1][row][col], cell);
+            }
+        }
+    }
+
+    /**
+     * Decodes Part 1 and Part 2 into the explored and obstacle state of every cell. Obstacles are only known for
+     * explored cells.
+     */
+    private static boolean[][][] decode(String[] descriptor, int rows, int cols) {
+        String part1 = toBits(descriptor[0]);
+        assertEquals(rows * cols + 4, part1.length(), "Part 1 length");
+        assertEquals("11", part1.substring(0, 2), "Part 1 padding");
+        assertEquals("11", part1.substring(part1.length() - 2), "Part 1 padding");
+
+        boolean[][] explored = new boolean[rows][cols];
+        int exploredCount = 0;
+        for (int i = 0; i < rows * cols; i++) {
+            explored[i / cols][i % cols] = part1.charAt(i + 2) == '1';
+            if (explored[i / cols][i % cols]) exploredCount++;
+        }
+
+        // The last digit of Part 2 holds fewer than four bits if the explored count is not a multiple of four.
+        String part2 = descriptor[1];
+        StringBuilder bits = new StringBuilder();
+        for (int i = 0; i < part2.length(); i++) {
+            int width = i == part2.length() - 1 && exploredCount % 4 != 0 ? exploredCount % 4 : 4;
+            bits.append(toBits(Character.digit(part2.charAt(i), 16), width));
+        }
+        assertEquals(exploredCount, bits.length(), "Part 2 length");
+
+        boolean[][] obstacle = new boolean[rows][cols];
+        int next = 0;
+        for (int i = 0; i < rows * cols; i++) {
+            if (explored[i / cols][i % cols]) obstacle[i / cols][i % cols] = bits.charAt(next++) == '1';
+        }
+        return new boolean[][][]{explored, obstacle};
+    }
+
+    private static String toBits(String hex) {
+        StringBuilder bits = new StringBuilder();
+        for (int i = 0; i < hex.length(); i++) {
+            bits.append(toBits(Character.digit(hex.charAt(i), 16), 4));
+        }
+        return bits.toString();
+    }
+
+    private static String toBits(int value, int width) {
+        StringBuilder bits = new StringBuilder(Integer.toBinaryString(value));
+        while (bits.length() < width) bits.insert(0, '0');
+        return bits.toString();
+    }
+}
@@ -0,0 +1,93 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that SendWindow matches acknowledgements to the messages they answer, also after a timeout.
+ */
+
+class SendWindowTest {
+    @Test
+    void acksFreeCreditsInOrder() {
+        SendWindow window = new SendWindow(2, 10000);
+        assertTrue(window.acquire());
+        assertTrue(window.acquire());
+        assertEquals(2, window.getInFlight());
+
+        assertTrue(window.ack());
+        assertEquals(1, window.getInFlight());
+        assertTrue(window.ack());
+        assertEquals(0, window.getInFlight());
+        assertEquals(2, window.getAcked());
+        assertEquals(0, window.getTimedOut());
+    }
+
+    @Test
+    void ackWithNothingInFlightIsIgnored() {
+        SendWindow window = new SendWindow(1, 10000);
+        window.ack();
+        assertTrue(window.acquire());
+        window.ack();
+        assertEquals(0, window.getInFlight());
+        assertEquals(1, window.getAcked());
+    }
+
+    @Test
+    void fullWindowWaitsForTimeout() {
+        SendWindow window = new SendWindow(1, 50);
+        assertTrue(window.acquire());
+
+        long start = System.nanoTime();
+        assertTrue(window.acquire());
+        assertTrue((System.nanoTime() - start) / 1000000 >= 45, "acquire() returned before the ack timeout");
+        assertEquals(1, window.getTimedOut());
+        assertEquals(1, window.getOwed());
+        assertEquals(1, window.getInFlight());
+    }
+
+    @Test
+    void lateAckIsMatchedToItsOwnMessage() throws InterruptedException {
+        SendWindow window = new SendWindow(1, 50);
+        assertTrue(window.acquire());
+        assertTrue(window.acquire());          // the first message times out
+        long secondSent = System.nanoTime();
+        Thread.sleep(20);
+
+        // The late ack of the first message neither frees the second one nor records a latency.
+        assertFalse(window.ack());
+        assertEquals(1, window.getInFlight());
+        assertEquals(0, window.getOwed());
+        assertEquals(1, window.getLate());
+        assertEquals(0, window.getAcked());
+        assertEquals(0, window.getMeanLatency());
+
+        assertTrue(window.ack());
+        double sinceSecond = (System.nanoTime() - secondSent) / 1e6;
+        assertEquals(0, window.getInFlight());
+        assertEquals(1, window.getAcked());
+        assertTrue(window.getMaxLatency() <= sinceSecond, "latency of the first message recorded for the second");
+    }
+
+    @Test
+    void awaitIdleTimesOutMessagesInFlight() {
+        SendWindow window = new SendWindow(3, 20);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(window.acquire());
+        }
+        assertTrue(window.ack());
+
+        assertTrue(window.awaitIdle());
+        assertEquals(0, window.getInFlight());
+        assertEquals(2, window.getTimedOut());
+        assertEquals(2, window.getOwed());
+
+        assertFalse(window.ack());
+        assertFalse(window.ack());
+        assertEquals(0, window.getOwed());
+        assertEquals(1, window.getAcked());
+    }
+}